@@ -0,0 +1,75 @@
+package fs2.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fs2.DirEntry;
+import fs2.Ext2File;
+import fs2.Volume;
+
+/**
+ * Listing directories of 10 to 100 000 entries and looking up their last entry
+ * 
+ * @author Georgi Valchanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectoryBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	public int entries;
+
+	private Volume volume;
+	private Ext2File directory;
+	private String last;
+
+	@Setup
+	public void setup() throws IOException {
+		// no caches, so every lookup reads the directory
+		volume = new Volume(Fixtures.directory(entries).toString(), 0, 0);
+		directory = volume.getFile("/dir");
+		last = "/dir/f" + (entries - 1);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		volume.close();
+	}
+
+	@Benchmark
+	public int listExt2Files() {
+		return directory.listExt2Files(null).length;
+	}
+
+	@Benchmark
+	public int directoryStream() {
+		int count = 0;
+		for (DirEntry entry : directory.newDirectoryStream()) {
+			count += entry.getName().length();
+		}
+		return count;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Ext2File lookupLast() throws IOException {
+		return volume.getFile(last);
+	}
+}
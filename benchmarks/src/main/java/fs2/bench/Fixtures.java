@@ -0,0 +1,185 @@
+package fs2.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Builds the images the benchmarks run on. An image is made once with
+ * {@code mke2fs -d} from a directory populated here, and is kept in
+ * {@code fs2.bench.dir}(a directory under java.io.tmpdir by default) for later
+ * runs. The directories of an image are indexed with {@code e2fsck -D} so large
+ * directories have hashed indexes.
+ * 
+ * @author Georgi Valchanov
+ */
+final class Fixtures {
+
+	/**
+	 * Size of the large file read by the read benchmarks
+	 */
+	static final int largeFileSize = 64 * 1024 * 1024;
+	/**
+	 * Deepest path of the tree image
+	 */
+	static final int maxDepth = 16;
+
+	private Fixtures() {
+	}
+
+	/**
+	 * Returns the image with the files of the read, path and traversal benchmarks:
+	 * <ul>
+	 * <li>/data/large.bin - {@link #largeFileSize} random bytes</li>
+	 * <li>/deep/d1/.../d16/leaf - a chain of {@link #maxDepth} directories</li>
+	 * <li>/tree/a0/b0 ... /tree/a9/b9 - 100 directories of 100 small files</li>
+	 * </ul>
+	 * 
+	 * @param blockSize
+	 *          size of the blocks of the image
+	 * @return path of the image
+	 * @throws IOException
+	 *           if the image cannot be built
+	 */
+	static Path tree(int blockSize) throws IOException {
+		return image("tree-" + blockSize, blockSize, 20000, staging -> {
+			Path data = Files.createDirectories(staging.resolve("data"));
+			writeRandom(data.resolve("large.bin"), largeFileSize, 1);
+
+			Path deep = staging.resolve("deep");
+			for (int i = 1; i <= maxDepth; i++) {
+				deep = deep.resolve("d" + i);
+			}
+			Files.createDirectories(deep);
+			writeRandom(deep.resolve("leaf"), 100, 2);
+
+			for (int a = 0; a < 10; a++) {
+				for (int b = 0; b < 10; b++) {
+					Path directory = Files.createDirectories(staging.resolve("tree/a" + a + "/b" + b));
+					for (int f = 0; f < 100; f++) {
+						writeRandom(directory.resolve("f" + f), 1 + f * 37, a * 1000 + b * 100 + f);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns an image with one directory, /dir, holding {@code entries} empty
+	 * files named f0, f1, ...
+	 * 
+	 * @param entries
+	 *          number of files in the directory
+	 * @return path of the image
+	 * @throws IOException
+	 *           if the image cannot be built
+	 */
+	static Path directory(int entries) throws IOException {
+		return image("dir-" + entries, 4096, entries + 64, staging -> {
+			Path directory = Files.createDirectories(staging.resolve("dir"));
+			for (int f = 0; f < entries; f++) {
+				Files.createFile(directory.resolve("f" + f));
+			}
+		});
+	}
+
+	/**
+	 * Returns the path to a directory of the deep chain
+	 * 
+	 * @param depth
+	 *          number of directories in the path(1 to {@link #maxDepth})
+	 * @return absolute path in the tree image
+	 */
+	static String deepPath(int depth) {
+		StringBuilder path = new StringBuilder("/deep");
+		for (int i = 1; i <= depth; i++) {
+			path.append("/d").append(i);
+		}
+		return path.toString();
+	}
+
+	/**
+	 * Builds an image unless it was built by an earlier run
+	 */
+	private static Path image(String name, int blockSize, int inodes, Populator populator) throws IOException {
+		Path directory = Paths.get(System.getProperty("fs2.bench.dir",
+				Paths.get(System.getProperty("java.io.tmpdir"), "fs2-bench").toString()));
+		Path image = directory.resolve(name + ".img");
+		if (Files.exists(image))
+			return image;
+
+		Files.createDirectories(directory);
+		Path staging = Files.createTempDirectory(directory, name);
+		Path partial = directory.resolve(name + ".partial");
+		try {
+			populator.populate(staging);
+
+			// room for the contents, the inode tables and the metadata
+			long kilobytes = (size(staging) + (long) inodes * 256 + 8 * 1024 * 1024) / 1024 * 2;
+			Files.deleteIfExists(partial);
+			run("mke2fs", "-q", "-F", "-t", "ext2", "-b", Integer.toString(blockSize), "-N", Integer.toString(inodes),
+					"-d", staging.toString(), partial.toString(), kilobytes + "k");
+			run("e2fsck", "-f", "-y", "-D", partial.toString());
+
+			Files.move(partial, image);
+			return image;
+		} finally {
+			delete(staging);
+		}
+	}
+
+	/**
+	 * Runs a tool of e2fsprogs
+	 */
+	private static void run(String... command) throws IOException {
+		Process process = new ProcessBuilder(command).inheritIO().start();
+		try {
+			int status = process.waitFor();
+			// e2fsck exits with 1 when it has optimized the directories
+			if (status != 0 && !(command[0].equals("e2fsck") && status == 1))
+				throw new IOException(String.join(" ", command) + " exited with " + status);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while building an image", e);
+		}
+	}
+
+	/**
+	 * Writes a file of seeded random bytes
+	 */
+	private static void writeRandom(Path file, int size, long seed) throws IOException {
+		Random random = new Random(seed);
+		byte[] chunk = new byte[Math.min(size, 1024 * 1024)];
+
+		try (OutputStream out = Files.newOutputStream(file)) {
+			for (int written = 0; written < size; written += chunk.length) {
+				random.nextBytes(chunk);
+				out.write(chunk, 0, Math.min(chunk.length, size - written));
+			}
+		}
+	}
+
+	private static long size(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+		}
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	/**
+	 * Fills the directory an image is made from
+	 */
+	private interface Populator {
+		void populate(Path staging) throws IOException;
+	}
+}
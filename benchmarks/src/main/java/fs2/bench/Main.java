@@ -0,0 +1,30 @@
+package fs2.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks with the JMH command line. Unless another result format
+ * is asked for, the results are written as JSON to jmh-result.json so runs of
+ * different releases can be compared
+ * 
+ * @author Georgi Valchanov
+ */
+public class Main {
+
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<>(Arrays.asList(args));
+
+		if (!options.contains("-rf")) {
+			options.add("-rf");
+			options.add("json");
+			if (!options.contains("-rff")) {
+				options.add("-rff");
+				options.add("jmh-result.json");
+			}
+		}
+
+		org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+	}
+}
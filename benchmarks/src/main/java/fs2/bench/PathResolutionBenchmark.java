@@ -0,0 +1,61 @@
+package fs2.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fs2.Ext2File;
+import fs2.Volume;
+
+/**
+ * Resolving absolute paths of several depths, with the inode and dentry caches
+ * on and off
+ * 
+ * @author Georgi Valchanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathResolutionBenchmark {
+
+	@Param({ "1", "4", "16" })
+	public int depth;
+
+	@Param({ "true", "false" })
+	public boolean cached;
+
+	private Volume volume;
+	private String path;
+
+	@Setup
+	public void setup() throws IOException {
+		String image = Fixtures.tree(4096).toString();
+		volume = cached ? new Volume(image) : new Volume(image, 0, 0);
+		path = Fixtures.deepPath(depth);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		volume.close();
+	}
+
+	@Benchmark
+	public Ext2File getFile() throws IOException {
+		return volume.getFile(path);
+	}
+}
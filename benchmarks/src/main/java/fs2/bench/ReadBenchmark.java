@@ -0,0 +1,105 @@
+package fs2.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fs2.Ext2File;
+import fs2.Volume;
+
+/**
+ * Reading a large file: whole sequential passes, random reads, small reads
+ * through the mark and reads of the last bytes
+ * 
+ * @author Georgi Valchanov
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+
+	@Param({ "1024", "4096" })
+	public int blockSize;
+
+	@Param({ "4096", "65536" })
+	public int chunk;
+
+	private Volume volume;
+	private Ext2File file;
+	private ByteBuffer buffer;
+
+	@Setup
+	public void setup() throws IOException {
+		volume = new Volume(Fixtures.tree(blockSize).toString());
+		file = volume.getFile("/data/large.bin");
+		buffer = ByteBuffer.allocate(chunk);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		volume.close();
+	}
+
+	/**
+	 * Reads the whole file in chunks at explicit positions
+	 */
+	@Benchmark
+	public long sequential() {
+		long total = 0;
+		for (long position = 0; position < file.size(); position += chunk) {
+			buffer.clear();
+			total += file.read(position, buffer);
+		}
+		return total;
+	}
+
+	/**
+	 * Reads the whole file in chunks through the mark, which reads ahead
+	 */
+	@Benchmark
+	public long sequentialMark() throws IOException {
+		long total = 0;
+		file.seek(0);
+		for (byte[] read = file.read(chunk); read != null; read = file.read(chunk)) {
+			total += read.length;
+		}
+		return total;
+	}
+
+	/**
+	 * Reads one chunk at a random position
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int random() {
+		buffer.clear();
+		return file.read(ThreadLocalRandom.current().nextLong(file.size() - chunk), buffer);
+	}
+
+	/**
+	 * Reads the last 10 bytes like the README example
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public byte[] tail() throws IOException {
+		file.seek(file.size() - 10);
+		return file.read(10);
+	}
+}
@@ -0,0 +1,68 @@
+package fs2.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fs2.Volume;
+import fs2.VolumeWalker;
+
+/**
+ * Visiting every file of an image, by walking the tree and by scanning the
+ * inode tables
+ * 
+ * @author Georgi Valchanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraversalBenchmark {
+
+	@Param({ "1", "4" })
+	public int parallelism;
+
+	private Volume volume;
+
+	@Setup
+	public void setup() throws IOException {
+		volume = new Volume(Fixtures.tree(4096).toString());
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		volume.close();
+	}
+
+	@Benchmark
+	public long walk() {
+		LongAdder files = new LongAdder();
+		new VolumeWalker(Integer.MAX_VALUE, null, parallelism, false).walk(volume.getRoot(), (file, depth) -> {
+			files.increment();
+			return true;
+		});
+		return files.sum();
+	}
+
+	@Benchmark
+	public long scanInodes() {
+		LongAdder bytes = new LongAdder();
+		volume.scanInodes(inode -> bytes.add(inode.getSize()), parallelism);
+		return bytes.sum();
+	}
+}
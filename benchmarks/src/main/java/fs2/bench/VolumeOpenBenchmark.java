@@ -0,0 +1,51 @@
+package fs2.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fs2.Volume;
+
+/**
+ * Opening and closing a volume: mapping the image, reading the super block and
+ * the group descriptor table and reading the root directory
+ * 
+ * @author Georgi Valchanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VolumeOpenBenchmark {
+
+	@Param({ "1024", "4096" })
+	public int blockSize;
+
+	private Path image;
+
+	@Setup
+	public void setup() throws IOException {
+		image = Fixtures.tree(blockSize);
+	}
+
+	@Benchmark
+	public int open() throws IOException {
+		try (Volume volume = new Volume(image.toString())) {
+			return volume.getGroupCount();
+		}
+	}
+}
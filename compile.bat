@@ -1 +1,2 @@
-javac -d bin -cp src src/*.java
\ No newline at end of file
+javac -d bin -cp src src/*.java
+xcopy /E /I /Y src\META-INF bin\META-INF
\ No newline at end of file
@@ -0,0 +1,89 @@
+package fs2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Reads images through the page cache of {@link CachedBackend}
+ * 
+ * @author Georgi Valchanov
+ */
+public class CachedBackendTest {
+
+	private static final int pageSize = CachedBackend.pageSize;
+
+	@Test
+	public void smallCacheReadsTheSameAsTheMappedImage() throws IOException {
+		String image = TestImages.files(1024).toString();
+
+		// 4 pages for a 7 MB image keep the cache evicting
+		try (Volume mapped = new Volume(image); Volume cached = Volume.openCached(image, 4 * pageSize)) {
+			for (String path : new String[] { "/data/large.bin", "/sparse.bin", "/tree/a1/b2/f7" }) {
+				assertArrayEquals(path, mapped.getFile(path).fullyRead(), cached.getFile(path).fullyRead());
+			}
+			assertEquals(10, cached.getFile("/tree/a3/b3").listExt2Files().length);
+			assertEquals(mapped.getName(), cached.getName());
+
+			Random random = new Random(5);
+			for (int i = 0; i < 10000; i++) {
+				long offset = (long) (random.nextDouble() * (mapped.length() - 4));
+				assertEquals(mapped.getIntAt(offset), cached.getIntAt(offset));
+				assertEquals(mapped.getShortAt(offset), cached.getShortAt(offset));
+				assertEquals(mapped.getByteAt(offset), cached.getByteAt(offset));
+			}
+		}
+	}
+
+	@Test
+	public void failedReadGivesItsFrameBack() throws IOException {
+		Path image = Files.createTempFile("fs2-cache", ".img");
+		try {
+			byte[] contents = TestImages.random(8 * pageSize, 11);
+			Files.write(image, contents);
+			ByteBuffer expected = ByteBuffer.wrap(contents).order(ByteOrder.LITTLE_ENDIAN);
+
+			// one stripe of four frames
+			try (CachedBackend cache = new CachedBackend(FileChannel.open(image, StandardOpenOption.READ), 4 * pageSize)) {
+				for (int page = 0; page < 4; page++) {
+					assertEquals(expected.getInt(page * pageSize), cache.getInt(page * (long) pageSize));
+				}
+
+				try {
+					cache.getInt(100L * pageSize);
+					fail("read past the end of the image");
+				} catch (UncheckedIOException e) {
+					// the frame of the page evicted for it is free again
+				}
+
+				for (int page = 0; page < 4; page++) {
+					assertEquals(expected.getInt(page * pageSize + 8), cache.getInt(page * (long) pageSize + 8));
+				}
+				assertEquals(4, cache.stats().size());
+
+				// the four pages fit and stay in the cache
+				long misses = cache.stats().misses();
+				for (int round = 0; round < 3; round++) {
+					for (int page = 0; page < 4; page++) {
+						assertEquals(expected.getInt(page * pageSize + 16), cache.getInt(page * (long) pageSize + 16));
+					}
+				}
+				assertEquals(misses, cache.stats().misses());
+			}
+		} finally {
+			Files.delete(image);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package fs2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Reads one {@link Volume} from several threads at once and checks every read
+ * against the contents read by a single thread
+ * 
+ * @author Georgi Valchanov
+ */
+public class ConcurrentReadTest {
+
+	private static final int threads = 8;
+	private static final int readsPerThread = 500;
+
+	private static Volume volume;
+	/**
+	 * Contents of the files, read by one thread from a volume of their own
+	 */
+	private static byte[] large;
+	private static byte[] sparse;
+
+	@BeforeClass
+	public static void open() throws IOException {
+		String image = TestImages.files(1024).toString();
+
+		try (Volume single = new Volume(image)) {
+			large = single.getFile("/data/large.bin").fullyRead();
+			sparse = single.getFile("/sparse.bin").fullyRead();
+		}
+		volume = new Volume(image);
+	}
+
+	@AfterClass
+	public static void close() throws IOException {
+		if (volume != null)
+			volume.close();
+	}
+
+	@Test
+	public void singleThreadedReadMatchesTheSource() {
+		assertArrayEquals(TestImages.random(TestImages.largeFileSize, 1), large);
+		assertArrayEquals(TestImages.sparseContents(), sparse);
+	}
+
+	@Test
+	public void sharedFileReadsMatchSingleThreadedRead() throws Exception {
+		Ext2File file = volume.getFile("/data/large.bin");
+
+		stress(seed -> () -> {
+			randomReads(file, large, seed);
+			return null;
+		});
+	}
+
+	@Test
+	public void filesOpenedPerThreadMatchSingleThreadedRead() throws Exception {
+		stress(seed -> () -> {
+			Random random = new Random(seed);
+			for (int i = 0; i < readsPerThread / 10; i++) {
+				// each file is resolved again, so the inode and dentry caches are shared too
+				boolean pickLarge = random.nextBoolean();
+				Ext2File file = volume.getFile(pickLarge ? "/data/large.bin" : "/sparse.bin");
+				randomReads(file, pickLarge ? large : sparse, random.nextLong(), 10);
+			}
+			return null;
+		});
+	}
+
+	@Test
+	public void streamsOfOneVolumeMatchSingleThreadedRead() throws Exception {
+		stress(seed -> () -> {
+			byte[] read = new byte[large.length];
+			int total = 0;
+			try (InputStream in = volume.getFile("/data/large.bin").newInputStream(4096 + (int) (seed % 4096))) {
+				for (int n; (n = in.read(read, total, read.length - total)) > 0;) {
+					total += n;
+				}
+			}
+			assertEquals(large.length, total);
+			assertArrayEquals(large, read);
+			return null;
+		});
+	}
+
+	/**
+	 * Runs a task on every thread at once and rethrows the first failure
+	 */
+	private static void stress(Task task) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(pool.submit(task.create(t * 7919L + 1)));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void randomReads(Ext2File file, byte[] expected, long seed) {
+		randomReads(file, expected, seed, readsPerThread);
+	}
+
+	/**
+	 * Reads random ranges of a file with the position free read and compares them
+	 * with the expected contents
+	 */
+	private static void randomReads(Ext2File file, byte[] expected, long seed, int reads) {
+		Random random = new Random(seed);
+
+		for (int i = 0; i < reads; i++) {
+			int start = random.nextInt(expected.length);
+			int length = 1 + random.nextInt(Math.min(expected.length - start, 64 * 1024));
+			// direct and heap buffers are both filled by the read
+			ByteBuffer dst = random.nextBoolean() ? ByteBuffer.allocate(length) : ByteBuffer.allocateDirect(length);
+
+			assertEquals(length, file.read(start, dst));
+
+			byte[] read = new byte[length];
+			dst.flip();
+			dst.get(read);
+			assertArrayEquals("bytes " + start + " to " + (start + length), Arrays.copyOfRange(expected, start, start + length), read);
+		}
+	}
+
+	/**
+	 * Creates the work of one thread from its seed
+	 */
+	private interface Task {
+		Callable<Void> create(long seed);
+	}
+}
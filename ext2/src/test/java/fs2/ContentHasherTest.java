@@ -0,0 +1,89 @@
+package fs2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Hashes the files of a volume and verifies them against a manifest
+ * 
+ * @author Georgi Valchanov
+ */
+public class ContentHasherTest {
+
+	@Test
+	public void hashesEveryFileAndVerifiesClean() throws Exception {
+		try (Volume volume = new Volume(TestImages.files(1024).toString())) {
+			HashManifest manifest = new ContentHasher(volume, ContentHasher.Algorithm.SHA256, 4).hash();
+
+			assertTrue(manifest.failures().isEmpty());
+			assertEquals(2 + 1 + 160, manifest.entries().size());
+			assertEquals(sha256(TestImages.random(TestImages.largeFileSize, 1)), digest(manifest, "/data/large.bin"));
+
+			Path written = Files.createTempFile("fs2-manifest", ".sha256");
+			try {
+				manifest.write(written);
+				HashManifest read = HashManifest.read(written);
+
+				ContentHasher.Verification verification = new ContentHasher(volume, ContentHasher.Algorithm.CRC32C, 2)
+						.verify(read);
+				assertTrue(verification.toString(), verification.isClean());
+				assertEquals(manifest.entries().size(), verification.matched());
+			} finally {
+				Files.delete(written);
+			}
+		}
+	}
+
+	@Test
+	public void unreadableFileIsReportedWithoutStoppingTheOthers() throws Exception {
+		Path image = TestImages.copy(TestImages.files(1024));
+		HashManifest expected;
+
+		try (Volume volume = new Volume(image.toString())) {
+			expected = new ContentHasher(volume, ContentHasher.Algorithm.SHA256, 4).hash();
+		}
+		TestImages.breakFirstBlock(image, "/data/small.txt");
+
+		try (Volume volume = new Volume(image.toString())) {
+			HashManifest manifest = new ContentHasher(volume, ContentHasher.Algorithm.SHA256, 4).hash();
+
+			assertEquals(1, manifest.failures().size());
+			HashManifest.Entry failed = manifest.failures().get(0);
+			assertEquals("/data/small.txt", failed.path());
+			assertNull(failed.digest());
+			assertEquals(expected.entries().size(), manifest.entries().size());
+
+			ContentHasher.Verification verification = new ContentHasher(volume, ContentHasher.Algorithm.SHA256, 4)
+					.verify(expected);
+			assertFalse(verification.isClean());
+			assertEquals(Collections.singletonList("/data/small.txt"), verification.unreadable());
+			assertTrue(verification.changed().isEmpty());
+			assertEquals(expected.entries().size() - 1, verification.matched());
+		}
+	}
+
+	private static String digest(HashManifest manifest, String path) {
+		for (HashManifest.Entry entry : manifest.entries()) {
+			if (entry.path().equals(path))
+				return entry.digest();
+		}
+		return null;
+	}
+
+	private static String sha256(byte[] bytes) throws Exception {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
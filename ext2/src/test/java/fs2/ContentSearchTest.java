@@ -0,0 +1,74 @@
+package fs2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Searches the contents of the files of a volume
+ * 
+ * @author Georgi Valchanov
+ */
+public class ContentSearchTest {
+
+	@Test
+	public void findsLiteralsAndExpressions() throws Exception {
+		try (Volume volume = new Volume(TestImages.files(1024).toString())) {
+			List<SearchHit> hits = volume.search("hello, ext2", new SearchOptions()).hits();
+			assertEquals(1, hits.size());
+			assertEquals("/data/small.txt", hits.get(0).path());
+			assertEquals(0, hits.get(0).offset());
+
+			hits = volume.search("HEL+O, EXT\\d", new SearchOptions().regex(true).ignoreCase(true)).hits();
+			assertEquals(1, hits.size());
+			assertEquals(11, hits.get(0).length());
+		}
+	}
+
+	@Test
+	public void findsMatchesAcrossBlocksAndWindows() throws Exception {
+		byte[] large = TestImages.random(TestImages.largeFileSize, 1);
+
+		try (Volume volume = new Volume(TestImages.files(1024).toString())) {
+			for (int offset : new int[] { 5 * 1024 - 3, ContentSearch.bufferSize - 5 }) {
+				byte[] literal = Arrays.copyOfRange(large, offset, offset + 12);
+				List<SearchHit> hits = volume.search(literal, new SearchOptions()).hits();
+
+				assertTrue(hits.stream().anyMatch(hit -> hit.path().equals("/data/large.bin") && hit.offset() == offset));
+			}
+		}
+	}
+
+	@Test
+	public void unreadableFileIsSkipped() throws Exception {
+		Path image = TestImages.copy(TestImages.files(1024));
+		TestImages.breakFirstBlock(image, "/data/small.txt");
+
+		try (Volume volume = new Volume(image.toString())) {
+			byte[] literal = Arrays.copyOfRange(TestImages.random(TestImages.largeFileSize, 1), 1000, 1016);
+			SearchResult result = volume.search(literal, new SearchOptions().parallelism(2));
+
+			assertEquals(1, result.hits().size());
+			assertEquals("/data/large.bin", result.hits().get(0).path());
+			assertFalse(result.isComplete());
+			assertEquals(1, result.failures().size());
+			assertTrue(result.failures().containsKey("/data/small.txt"));
+
+			result = volume.search(volume.getFile("/data"), literal, new SearchOptions());
+			assertEquals(1, result.hits().size());
+			assertEquals(Collections.singleton("/data/small.txt"), result.failures().keySet());
+
+			// a tree without the broken file is searched whole
+			result = volume.search(volume.getFile("/tree"), literal, new SearchOptions());
+			assertEquals(0, result.hits().size());
+			assertTrue(result.isComplete());
+		}
+	}
+}
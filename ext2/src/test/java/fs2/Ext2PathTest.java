@@ -0,0 +1,48 @@
+package fs2;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderMismatchException;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Compares paths of ext2 file systems
+ * 
+ * @author Georgi Valchanov
+ */
+public class Ext2PathTest {
+
+	@Test
+	public void pathsOfOtherFileSystemsDoNotMatch() throws Exception {
+		Ext2FileSystemProvider provider = new Ext2FileSystemProvider();
+
+		try (FileSystem fs = provider.newFileSystem(TestImages.files(1024), Collections.emptyMap());
+				FileSystem other = provider.newFileSystem(TestImages.files(2048), Collections.emptyMap())) {
+			Path path = fs.getPath("/data/small.txt");
+
+			assertTrue(path.startsWith(fs.getPath("/data")));
+			assertTrue(path.endsWith(fs.getPath("small.txt")));
+
+			// the default file system and another mounted image
+			for (Path foreign : new Path[] { Paths.get("/data"), other.getPath("/data") }) {
+				assertFalse(path.startsWith(foreign));
+				assertFalse(path.endsWith(foreign));
+			}
+			assertFalse(path.endsWith(other.getPath("small.txt")));
+
+			try {
+				path.resolve(other.getPath("small.txt"));
+				fail("resolved a path of another file system");
+			} catch (ProviderMismatchException e) {
+				// only paths of the same file system are resolved
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package fs2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Extracts files of a volume into a directory
+ * 
+ * @author Georgi Valchanov
+ */
+public class ExtractionServiceTest {
+
+	private Volume volume;
+	private Path scratch;
+	private Path destination;
+
+	@Before
+	public void open() throws IOException {
+		volume = new Volume(TestImages.files(1024).toString());
+		scratch = Files.createTempDirectory("fs2-extract");
+		destination = scratch.resolve("a/b/out");
+	}
+
+	@After
+	public void close() throws IOException {
+		if (volume != null)
+			volume.close();
+		TestImages.delete(scratch);
+	}
+
+	@Test
+	public void extractsFilesWithTheirContents() throws Exception {
+		for (boolean sparse : new boolean[] { false, true }) {
+			ExtractionReport report = new ExtractionService(volume, 4, sparse)
+					.extract(Arrays.asList("/data/large.bin", "/sparse.bin", "/missing"), destination);
+
+			assertEquals(1, report.failures().size());
+			assertEquals("/missing", report.failures().get(0).path());
+			assertArrayEquals(TestImages.random(TestImages.largeFileSize, 1),
+					Files.readAllBytes(destination.resolve("data/large.bin")));
+			assertArrayEquals(TestImages.sparseContents(), Files.readAllBytes(destination.resolve("sparse.bin")));
+		}
+	}
+
+	@Test
+	public void pathsLeadingOutOfTheDestinationAreRejected() throws Exception {
+		// the volume follows "..", and the root is its own parent
+		String escape = "/data/../../../data/small.txt";
+		assertEquals(12, volume.getFile(escape).size());
+
+		ExtractionReport report = new ExtractionService(volume, 2).extract(Arrays.asList(escape), destination);
+
+		assertEquals(1, report.failures().size());
+		assertFalse(Files.exists(scratch.resolve("a/data/small.txt")));
+		assertFalse(Files.exists(scratch.resolve("data/small.txt")));
+	}
+
+	@Test
+	public void pathsWithTheSameTargetAreWrittenOnce() throws Exception {
+		ExtractionReport report = new ExtractionService(volume, 4)
+				.extract(Arrays.asList("/data/small.txt", "/data//small.txt", "//data/small.txt"), destination);
+
+		assertTrue(report.failures().isEmpty());
+		assertEquals(3, report.entries().size());
+		assertEquals(12, report.bytes());
+		assertArrayEquals("hello, ext2\n".getBytes("UTF-8"), Files.readAllBytes(destination.resolve("data/small.txt")));
+	}
+}
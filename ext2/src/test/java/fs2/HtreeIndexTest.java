@@ -0,0 +1,82 @@
+package fs2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * Looks names up through the hashed index of a directory
+ * 
+ * @author Georgi Valchanov
+ */
+public class HtreeIndexTest {
+
+	/**
+	 * Enough names for a 1K directory to need an index level below the root
+	 */
+	private static final int entries = 20000;
+
+	@Test
+	public void findsEveryNameThroughTheIndex() throws IOException {
+		try (Volume volume = new Volume(TestImages.indexedDirectory(1024, entries).toString())) {
+			Ext2File directory = volume.getFile("/dir");
+			assertTrue(directory.getInode().hasHashedIndex());
+
+			for (int f = 0; f < entries; f += 7) {
+				int number = HtreeIndex.lookup(directory, "f" + f);
+				assertTrue("f" + f, number > 0);
+				assertEquals(volume.getFile("/dir/f" + f).getInode().getNumber(), number);
+			}
+			assertEquals(0, HtreeIndex.lookup(directory, "missing"));
+		}
+	}
+
+	@Test
+	public void followsACollisionIntoTheNextIndexNode() throws IOException {
+		Path image = TestImages.copy(TestImages.indexedDirectory(1024, entries));
+		String name;
+		int expected;
+
+		try (Volume volume = new Volume(image.toString())) {
+			Ext2File directory = volume.getFile("/dir");
+			int blockSize = volume.getBlockSize();
+			long info = directory.physicalBlock(0) * blockSize + 24;
+			assertEquals("index levels", 1, volume.getByteAt(info + 6));
+
+			// the second entry of the root points to the second index node
+			long root = info + 8;
+			long node = directory.physicalBlock(volume.getIntAt(root + 8 + 4) & 0xffffffffL) * blockSize + 8;
+			long leaf = directory.physicalBlock(volume.getIntAt(node + 4) & 0xffffffffL) * blockSize;
+
+			// the name with the smallest hash in the first leaf of that node
+			int version = volume.getByteAt(info + 4) + (volume.getSuperBlock().hasUnsignedDirectoryHash() ? 3 : 0);
+			name = null;
+			int lowest = 0;
+			for (int offset = 0; offset < blockSize;) {
+				int length = volume.getShortAt(leaf + offset + 4) & 0xffff;
+				if (volume.getIntAt(leaf + offset) != 0) {
+					String candidate = volume.getStringAt(leaf + offset + 8, volume.getByteAt(leaf + offset + 6) & 0xff);
+					int hash = HtreeIndex.hash(candidate, version, volume.getSuperBlock().hashSeed());
+					if (name == null || Integer.compareUnsigned(hash, lowest) < 0) {
+						name = candidate;
+						lowest = hash;
+					}
+				}
+				offset += length;
+			}
+			expected = volume.getFile("/dir/" + name).getInode().getNumber();
+
+			// mark the second index node as continuing the hash of the name, so the
+			// name is looked for in the first node and found in the second
+			TestImages.putInt(image, root + 8, lowest | 1);
+		}
+
+		try (Volume volume = new Volume(image.toString())) {
+			assertEquals(expected, HtreeIndex.lookup(volume.getFile("/dir"), name));
+		}
+	}
+}
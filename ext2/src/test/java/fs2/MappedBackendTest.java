@@ -0,0 +1,81 @@
+package fs2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Reads images through the memory maps of {@link MappedBackend}
+ * 
+ * @author Georgi Valchanov
+ */
+public class MappedBackendTest {
+
+	@Test(timeout = 10000)
+	public void readAcrossTheEndFails() throws IOException {
+		Path image = Files.createTempFile("fs2-mapped", ".img");
+		try {
+			byte[] contents = TestImages.random(10000, 13);
+			Files.write(image, contents);
+
+			try (MappedBackend mapped = new MappedBackend(FileChannel.open(image, StandardOpenOption.READ))) {
+				byte[] array = new byte[100];
+				mapped.copy(9900, array, 0, 100);
+				assertArrayEquals(Arrays.copyOfRange(contents, 9900, 10000), array);
+
+				try {
+					mapped.copy(9950, array, 0, 100);
+					fail("read past the end of the image");
+				} catch (UncheckedIOException e) {
+					assertEOF(e);
+				}
+
+				try {
+					mapped.copy(9950, ByteBuffer.allocate(100), 100);
+					fail("read past the end of the image");
+				} catch (UncheckedIOException e) {
+					assertEOF(e);
+				}
+			}
+		} finally {
+			Files.delete(image);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void truncatedFileFails() throws IOException {
+		Path image = TestImages.copy(TestImages.files(1024));
+
+		try (Volume volume = new Volume(image.toString())) {
+			// cut the image in the middle of the last block of the file
+			Ext2File file = volume.getFile("/data/large.bin");
+			long block = file.physicalBlock((file.size() - 1) / 1024);
+			try (FileChannel channel = FileChannel.open(image, StandardOpenOption.WRITE)) {
+				channel.truncate(block * 1024 + 64);
+			}
+		}
+
+		try (Volume volume = new Volume(image.toString())) {
+			volume.getFile("/data/large.bin").fullyRead();
+			fail("read past the end of the image");
+		} catch (UncheckedIOException e) {
+			assertEOF(e);
+		}
+	}
+
+	private static void assertEOF(UncheckedIOException e) {
+		if (!(e.getCause() instanceof EOFException))
+			throw e;
+	}
+}
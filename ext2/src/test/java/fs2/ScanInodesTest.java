@@ -0,0 +1,85 @@
+package fs2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.junit.Test;
+
+/**
+ * Scans the inode tables of a volume
+ * 
+ * @author Georgi Valchanov
+ */
+public class ScanInodesTest {
+
+	/**
+	 * Offset of the flags in a group descriptor
+	 */
+	private static final int groupFlags = 18;
+
+	@Test
+	public void visitsEveryFileOfTheTree() throws IOException {
+		try (Volume volume = new Volume(TestImages.files(1024).toString())) {
+			Set<Integer> scanned = scan(volume, 1);
+			Set<Integer> walked = new ConcurrentSkipListSet<>();
+
+			new VolumeWalker().walk(volume.getRoot(), (file, depth) -> {
+				walked.add(file.getInode().getNumber());
+				return true;
+			});
+
+			assertTrue(scanned.contains(2));
+			assertTrue(scanned.containsAll(walked));
+			assertEquals(scanned, scan(volume, 4));
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void deprecatedConstructorReadsTheSameDescriptor() throws IOException {
+		try (Volume volume = new Volume(TestImages.files(1024).toString())) {
+			for (int group = 0; group < volume.getGroupCount(); group++) {
+				GroupDescriptor decoded = volume.getGroupDescriptor(group);
+				GroupDescriptor read = new GroupDescriptor(volume, volume.groupDescriptors().offsetOf(group));
+
+				assertEquals(decoded.inodeTablePointer(), read.inodeTablePointer());
+				assertEquals(decoded.freeInodes(), read.freeInodes());
+				assertEquals(decoded.flags(), read.flags());
+			}
+		}
+	}
+
+	@Test
+	public void uninitializedFlagIsIgnoredWithoutGroupChecksums() throws IOException {
+		Path image = TestImages.copy(TestImages.files(1024));
+		Set<Integer> expected;
+
+		try (Volume volume = new Volume(image.toString())) {
+			assertFalse(volume.getSuperBlock().hasGroupChecksums());
+			expected = scan(volume, 1);
+
+			long table = (volume.getSuperBlock().firstDataBlock() + 1L) * volume.getBlockSize();
+			TestImages.putShort(image, table + groupFlags, GroupDescriptorTable.inodesUninitialized);
+		}
+
+		try (Volume volume = new Volume(image.toString())) {
+			assertEquals(GroupDescriptorTable.inodesUninitialized, volume.getGroupDescriptor(0).flags());
+			assertEquals(expected, scan(volume, 1));
+		}
+	}
+
+	private static Set<Integer> scan(Volume volume, int parallelism) {
+		Set<Integer> numbers = new ConcurrentSkipListSet<>();
+		long visited = volume.scanInodes(inode -> numbers.add(inode.getNumber()), parallelism);
+
+		assertEquals(numbers.size(), visited);
+		return new TreeSet<>(numbers);
+	}
+}
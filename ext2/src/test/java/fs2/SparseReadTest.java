@@ -0,0 +1,68 @@
+package fs2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Reads files with holes
+ * 
+ * @author Georgi Valchanov
+ */
+public class SparseReadTest {
+
+	private static final int start = TestImages.sparseDataStart;
+	private static final int end = TestImages.sparseDataStart + TestImages.sparseDataLength;
+
+	@Test
+	public void seeksBetweenDataAndHoles() throws IOException {
+		for (int blockSize : new int[] { 1024, 4096 }) {
+			try (Volume volume = new Volume(TestImages.files(blockSize).toString())) {
+				Ext2File file = volume.getFile("/sparse.bin");
+
+				assertEquals(start, file.seekData(0));
+				assertEquals(start + 10, file.seekData(start + 10));
+				assertEquals(0, file.seekHole(0));
+				assertEquals(end, file.seekHole(start));
+				assertEquals(-1, file.seekData(end));
+				assertEquals(-1, file.seekData(TestImages.sparseFileSize));
+			}
+		}
+	}
+
+	@Test
+	public void readsAcrossHolesWithoutMappingTheWholeFile() throws Exception {
+		byte[] expected = TestImages.sparseContents();
+
+		for (int blockSize : new int[] { 1024, 4096 }) {
+			try (Volume volume = new Volume(TestImages.files(blockSize).toString())) {
+				int[][] ranges = { { 0, 4096 }, { 100, start }, { start - 5000, 10000 }, { end - 3000, 9000 },
+						{ 0, TestImages.sparseFileSize }, { end + 1, TestImages.sparseFileSize - end - 1 } };
+
+				for (int[] range : ranges) {
+					// a new file has no map of its blocks yet
+					Ext2File file = volume.getFile("/sparse.bin");
+					ByteBuffer dst = ByteBuffer.allocate(range[1]);
+
+					assertEquals(range[1], file.read(range[0], dst));
+					assertArrayEquals(Arrays.toString(range), Arrays.copyOfRange(expected, range[0], range[0] + range[1]),
+							dst.array());
+					assertNull("the whole file was mapped", extentMap(file));
+				}
+			}
+		}
+	}
+
+	private static Object extentMap(Ext2File file) throws ReflectiveOperationException {
+		Field blocks = Ext2File.class.getDeclaredField("blocks");
+		blocks.setAccessible(true);
+		return blocks.get(file);
+	}
+}
@@ -0,0 +1,83 @@
+package fs2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * Opens volumes of every common block size and rejects super blocks with
+ * sizes that cannot be right
+ * 
+ * @author Georgi Valchanov
+ */
+public class SuperBlockTest {
+
+	/**
+	 * Offsets in the image of fields of the super block
+	 */
+	private static final int logBlockSize = 1024 + 24;
+	private static final int inodeSize = 1024 + 88;
+
+	@Test
+	public void readsVolumesOfEveryBlockSize() throws IOException {
+		for (int blockSize : new int[] { 1024, 2048, 4096 }) {
+			try (Volume volume = new Volume(TestImages.files(blockSize).toString())) {
+				SuperBlock superblock = volume.getSuperBlock();
+
+				assertEquals(blockSize, volume.getBlockSize());
+				assertEquals(Integer.numberOfTrailingZeros(blockSize / 1024), superblock.logBlockSize());
+				assertEquals(blockSize == 1024 ? 1 : 0, superblock.firstDataBlock());
+				assertEquals(superblock.inodeSize(), volume.getInodeSize());
+				assertTrue(volume.getInodeSize() >= 128);
+				assertTrue(volume.getGroupCount() >= 1);
+
+				assertArrayEquals(TestImages.random(TestImages.largeFileSize, 1),
+						volume.getFile("/data/large.bin").fullyRead());
+				assertArrayEquals(TestImages.sparseContents(), volume.getFile("/sparse.bin").fullyRead());
+				assertEquals(10, volume.getFile("/tree/a3/b2").listExt2Files().length);
+				assertArrayEquals(TestImages.random(1 + 9 * 97, 329), volume.getFile("/tree/a3/b2/f9").fullyRead());
+			}
+		}
+	}
+
+	@Test
+	public void rejectsBlockSizesOverTheLimit() throws IOException {
+		for (int log : new int[] { 7, 22, -1 }) {
+			assertRejected(logBlockSize, log);
+		}
+	}
+
+	@Test
+	public void rejectsInodeSizesThatCannotBeRight() throws IOException {
+		// smaller than the first revision, not a power of two and bigger than a block
+		for (int size : new int[] { 0, 64, 200, 2048 }) {
+			assertRejected(inodeSize, size);
+		}
+	}
+
+	/**
+	 * Writes a value into the super block of a 1K image and checks it cannot be
+	 * opened
+	 */
+	private static void assertRejected(long offset, int value) throws IOException {
+		Path image = TestImages.copy(TestImages.files(1024));
+		TestImages.putInt(image, offset, value);
+
+		Volume volume;
+		try {
+			volume = new Volume(image.toString());
+		} catch (IOException e) {
+			// the volume is rejected when it is opened
+			return;
+		}
+
+		volume.close();
+		fail("opened a volume with " + value + " at " + offset);
+	}
+}
@@ -0,0 +1,334 @@
+package fs2;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Builds the images the tests read. An image is made with {@code mke2fs -d}
+ * from a directory populated here and is kept in {@code fs2.test.dir}(a
+ * directory under java.io.tmpdir by default) for the rest of the run. Tests
+ * which need an image are skipped when e2fsprogs is not installed
+ * 
+ * @author Georgi Valchanov
+ */
+final class TestImages {
+
+	/**
+	 * Size of /data/large.bin. At 1K blocks it reaches the double indirect blocks
+	 */
+	static final int largeFileSize = 3 * 1024 * 1024 + 123;
+	/**
+	 * Size of /sparse.bin
+	 */
+	static final int sparseFileSize = 1024 * 1024;
+	/**
+	 * Offset of the data in /sparse.bin. Everything before and after it is a hole
+	 */
+	static final int sparseDataStart = 256 * 1024;
+	/**
+	 * Number of bytes of data in /sparse.bin
+	 */
+	static final int sparseDataLength = 100 * 1024;
+
+	/**
+	 * Offset of the first block pointer in an inode
+	 */
+	private static final int firstBlockPointer = 40;
+
+	/**
+	 * Images built by this run, by their name
+	 */
+	private static final Map<String, Path> images = new HashMap<>();
+
+	private TestImages() {
+	}
+
+	/**
+	 * Returns the image with the files of the tests:
+	 * <ul>
+	 * <li>/data/large.bin - {@link #largeFileSize} bytes of {@link #random(int, long)} with seed 1</li>
+	 * <li>/data/small.txt - "hello, ext2\n"</li>
+	 * <li>/sparse.bin - {@link #sparseFileSize} bytes, only {@link #sparseDataLength} of them data</li>
+	 * <li>/tree/a0/b0 ... /tree/a3/b3 - 16 directories of 10 small files</li>
+	 * </ul>
+	 * 
+	 * @param blockSize
+	 *          size of the blocks of the image
+	 * @return path of the image
+	 * @throws IOException
+	 *           if the image cannot be built
+	 */
+	static Path files(int blockSize) throws IOException {
+		return image("files-" + blockSize, blockSize, false, TestImages::populateFiles);
+	}
+
+	/**
+	 * Returns an image with one directory, /dir, holding {@code entries} empty
+	 * files named f0, f1, ... The directory has a hashed index, built by
+	 * {@code e2fsck -D}
+	 * 
+	 * @param blockSize
+	 *          size of the blocks of the image
+	 * @param entries
+	 *          number of files in the directory
+	 * @return path of the image
+	 * @throws IOException
+	 *           if the image cannot be built
+	 */
+	static Path indexedDirectory(int blockSize, int entries) throws IOException {
+		return image("dir-" + blockSize + "-" + entries, blockSize, true, staging -> {
+			Path directory = Files.createDirectories(staging.resolve("dir"));
+			for (int f = 0; f < entries; f++) {
+				Files.createFile(directory.resolve("f" + f));
+			}
+		});
+	}
+
+	/**
+	 * Returns an image built by this run, building it on first use
+	 */
+	private static synchronized Path image(String name, int blockSize, boolean index, Populator populator)
+			throws IOException {
+		Path image = images.get(name);
+		if (image == null) {
+			image = build(name, blockSize, index, populator);
+			images.put(name, image);
+		}
+		return image;
+	}
+
+	/**
+	 * Copies an image so a test can change it
+	 * 
+	 * @param image
+	 *          to be copied
+	 * @return path of the copy. It is deleted when the JVM exits
+	 * @throws IOException
+	 *           if the image cannot be copied
+	 */
+	static Path copy(Path image) throws IOException {
+		Path copy = Files.createTempFile(image.getParent(), "copy", ".img");
+		copy.toFile().deleteOnExit();
+		return Files.copy(image, copy, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Points the first block of a file far past the end of an image, so reading
+	 * the file fails while the rest of the volume stays readable
+	 * 
+	 * @param image
+	 *          to be changed
+	 * @param path
+	 *          absolute path of the file in the volume
+	 * @throws IOException
+	 *           if the image cannot be read or written
+	 */
+	static void breakFirstBlock(Path image, String path) throws IOException {
+		long offset;
+		try (Volume volume = new Volume(image.toString())) {
+			offset = volume.inodeOffset(volume.getFile(path).getInode().getNumber());
+		}
+		putInt(image, offset + firstBlockPointer, 0x00ffffff);
+	}
+
+	/**
+	 * Overwrites a little endian {@code int} of an image
+	 * 
+	 * @param image
+	 *          to be changed
+	 * @param offset
+	 *          of the int in the image
+	 * @param value
+	 *          written at the offset
+	 * @throws IOException
+	 *           if the image cannot be written
+	 */
+	static void putInt(Path image, long offset, int value) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value);
+		try (FileChannel channel = FileChannel.open(image, StandardOpenOption.WRITE)) {
+			channel.write(bytes, offset);
+		}
+	}
+
+	/**
+	 * Overwrites a little endian {@code short} of an image
+	 * 
+	 * @param image
+	 *          to be changed
+	 * @param offset
+	 *          of the short in the image
+	 * @param value
+	 *          written at the offset
+	 * @throws IOException
+	 *           if the image cannot be written
+	 */
+	static void putShort(Path image, long offset, int value) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN).putShort(0, (short) value);
+		try (FileChannel channel = FileChannel.open(image, StandardOpenOption.WRITE)) {
+			channel.write(bytes, offset);
+		}
+	}
+
+	/**
+	 * Returns {@code size} random bytes of a seed
+	 * 
+	 * @param size
+	 *          number of bytes
+	 * @param seed
+	 *          of the random generator
+	 * @return the bytes
+	 */
+	static byte[] random(int size, long seed) {
+		byte[] bytes = new byte[size];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Returns the expected contents of /sparse.bin
+	 * 
+	 * @return the contents of /sparse.bin
+	 */
+	static byte[] sparseContents() {
+		byte[] contents = new byte[sparseFileSize];
+		System.arraycopy(random(sparseDataLength, 3), 0, contents, sparseDataStart, sparseDataLength);
+		return contents;
+	}
+
+	private static void populateFiles(Path staging) throws IOException {
+		Path data = Files.createDirectories(staging.resolve("data"));
+		Files.write(data.resolve("large.bin"), random(largeFileSize, 1));
+		Files.write(data.resolve("small.txt"), "hello, ext2\n".getBytes("UTF-8"));
+
+		try (RandomAccessFile sparse = new RandomAccessFile(staging.resolve("sparse.bin").toFile(), "rw")) {
+			sparse.setLength(sparseFileSize);
+			sparse.seek(sparseDataStart);
+			sparse.write(random(sparseDataLength, 3));
+		}
+
+		for (int a = 0; a < 4; a++) {
+			for (int b = 0; b < 4; b++) {
+				Path directory = Files.createDirectories(staging.resolve("tree/a" + a + "/b" + b));
+				for (int f = 0; f < 10; f++) {
+					Files.write(directory.resolve("f" + f), random(1 + f * 97, a * 100 + b * 10 + f));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Builds an image into {@code fs2.test.dir}, indexing its directories if
+	 * {@code index} is set
+	 */
+	private static Path build(String name, int blockSize, boolean index, Populator populator) throws IOException {
+		String mke2fs = tool("mke2fs");
+		String e2fsck = tool("e2fsck");
+		assumeTrue("mke2fs is not installed", mke2fs != null);
+		assumeTrue("e2fsck is not installed", !index || e2fsck != null);
+
+		Path directory = Paths.get(System.getProperty("fs2.test.dir",
+				Paths.get(System.getProperty("java.io.tmpdir"), "fs2-test").toString()));
+		Files.createDirectories(directory);
+		Path staging = Files.createTempDirectory(directory, name);
+		Path image = directory.resolve(name + ".img");
+
+		try {
+			populator.populate(staging);
+
+			// room for the contents, the inode tables and the metadata
+			long inodes = count(staging) + 64;
+			long kilobytes = (size(staging) + inodes * 256 + 4 * 1024 * 1024) / 1024 * 2;
+			Files.deleteIfExists(image);
+			run(mke2fs, "-q", "-F", "-t", "ext2", "-b", Integer.toString(blockSize), "-N", Long.toString(inodes), "-d",
+					staging.toString(), image.toString(), kilobytes + "k");
+			if (index)
+				run(e2fsck, "-f", "-y", "-D", image.toString());
+			return image;
+		} finally {
+			delete(staging);
+		}
+	}
+
+	/**
+	 * Finds a tool on the path or in the sbin directories
+	 * 
+	 * @return the location of the tool, or null if it is not installed
+	 */
+	private static String tool(String name) {
+		String path = System.getenv("PATH") + File.pathSeparator + "/sbin" + File.pathSeparator + "/usr/sbin";
+		for (String directory : path.split(File.pathSeparator)) {
+			Path tool = Paths.get(directory, name);
+			if (Files.isExecutable(tool))
+				return tool.toString();
+		}
+		return null;
+	}
+
+	/**
+	 * Runs a tool of e2fsprogs
+	 */
+	private static void run(String... command) throws IOException {
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		try {
+			byte[] output = readAll(process);
+			int status = process.waitFor();
+			// e2fsck exits with 1 when it has optimized the directories
+			if (status != 0 && !(command[0].endsWith("e2fsck") && status == 1))
+				throw new IOException(String.join(" ", command) + " failed: " + new String(output, "UTF-8"));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while building an image", e);
+		}
+	}
+
+	private static byte[] readAll(Process process) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] chunk = new byte[4096];
+		for (int read; (read = process.getInputStream().read(chunk)) != -1;) {
+			output.write(chunk, 0, read);
+		}
+		return output.toByteArray();
+	}
+
+	private static long size(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+		}
+	}
+
+	private static long count(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.count();
+		}
+	}
+
+	static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	/**
+	 * Fills the directory an image is made from
+	 */
+	private interface Populator {
+		void populate(Path staging) throws IOException;
+	}
+}
@@ -0,0 +1,74 @@
+package fs2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Transfers files straight to channels
+ * 
+ * @author Georgi Valchanov
+ */
+public class TransferTest {
+
+	/**
+	 * Offset of the upper 32 bits of the size in an inode
+	 */
+	private static final int sizeHigh = 108;
+
+	@Test
+	public void transferMatchesRead() throws IOException {
+		for (int blockSize : new int[] { 1024, 4096 }) {
+			try (Volume volume = new Volume(TestImages.files(blockSize).toString())) {
+				for (String path : new String[] { "/data/large.bin", "/sparse.bin", "/data/small.txt" }) {
+					Ext2File file = volume.getFile(path);
+					byte[] expected = file.fullyRead();
+
+					assertArrayEquals(path, expected, transfer(file, 0, file.size()));
+
+					int start = expected.length / 3;
+					int count = expected.length / 2;
+					assertArrayEquals(path, Arrays.copyOfRange(expected, start, start + count), transfer(file, start, count));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void sizeBeyondTheBlockMapIsTransferredAsAHole() throws IOException {
+		Path image = TestImages.copy(TestImages.files(1024));
+		long start;
+
+		try (Volume volume = new Volume(image.toString())) {
+			// 5 * 4 GB is more than 1K blocks can address through triple indirection
+			int number = volume.getFile("/data/small.txt").getInode().getNumber();
+			TestImages.putInt(image, volume.inodeOffset(number) + sizeHigh, 5);
+			start = 5L << 32;
+		}
+
+		try (Volume volume = new Volume(image.toString())) {
+			Ext2File file = volume.getFile("/data/small.txt");
+			assertEquals((5L << 32) + 12, file.size());
+
+			assertArrayEquals("hello, ext2\n".getBytes("UTF-8"), transfer(file, 0, 12));
+			assertArrayEquals(new byte[12], transfer(file, start, 100));
+			assertArrayEquals(new byte[4096], transfer(file, start - 4096, 4096));
+		}
+	}
+
+	private static byte[] transfer(Ext2File file, long start, long count) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (WritableByteChannel channel = Channels.newChannel(out)) {
+			assertEquals(Math.min(count, file.size() - start), file.transferTo(start, count, channel));
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,126 @@
+package fs2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Prints the tree of a volume
+ * 
+ * @author Georgi Valchanov
+ */
+public class TraverseTest {
+
+	/**
+	 * Offsets in an inode and the flag of a hashed index
+	 */
+	private static final int modeOffset = 0;
+	private static final int flagsOffset = 32;
+	private static final int indexFlag = 0x1000;
+
+	@Test
+	public void printsEveryFileUnderItsDirectory() throws IOException {
+		List<String> lines = traverse(TestImages.files(1024).toString());
+
+		// /data, /sparse.bin, /tree and /lost+found are at the top
+		assertTrue(lines.contains("data"));
+		assertTrue(lines.contains("  large.bin"));
+		assertTrue(lines.contains("lost+found"));
+		assertEquals(4, lines.stream().filter(line -> line.matches("  a\\d")).count());
+		assertEquals(16, lines.stream().filter(line -> line.matches("    b\\d")).count());
+		assertEquals(160, lines.stream().filter(line -> line.matches("      f\\d")).count());
+
+		// every file is printed under the directory that holds it
+		for (int i = 1; i < lines.size(); i++) {
+			int indent = indent(lines.get(i));
+			assertTrue(lines.get(i), indent <= indent(lines.get(i - 1)) + 2);
+		}
+	}
+
+	@Test
+	public void matchesAnOrderedWalk() throws IOException {
+		String image = TestImages.files(2048).toString();
+		List<String> walked = new ArrayList<>();
+
+		try (Volume volume = new Volume(image)) {
+			new VolumeWalker(Integer.MAX_VALUE, null, 4, true).walk(volume.getRoot(), (file, depth) -> {
+				walked.add(new String(new char[2 * (depth - 1)]).replace('\0', ' ') + file.getName());
+				return !file.getName().equals("lost+found");
+			});
+		}
+
+		assertEquals(walked, traverse(image));
+	}
+
+	@Test
+	public void socketsAndDevicesAreNotDirectories() throws IOException {
+		Path image = TestImages.copy(TestImages.files(1024));
+
+		try (Volume volume = new Volume(image.toString())) {
+			long socket = volume.inodeOffset(volume.getFile("/data/small.txt").getInode().getNumber());
+			long device = volume.inodeOffset(volume.getFile("/data/large.bin").getInode().getNumber());
+
+			// both type fields share the directory bit, and the socket has the index flag
+			TestImages.putShort(image, socket + modeOffset, 0xC1A4);
+			TestImages.putInt(image, socket + flagsOffset, indexFlag);
+			TestImages.putShort(image, device + modeOffset, 0x61A4);
+		}
+
+		try (Volume volume = new Volume(image.toString())) {
+			for (String path : new String[] { "/data/small.txt", "/data/large.bin" }) {
+				Ext2File file = volume.getFile(path);
+				assertFalse(path, file.isDirectory());
+				assertFalse(path, file.isFile());
+				assertFalse(path, file.getInode().hasHashedIndex());
+			}
+
+			// the walk does not read them as directories
+			List<String> walked = new ArrayList<>();
+			new VolumeWalker(Integer.MAX_VALUE, null, 2, true).walk(volume.getFile("/data"), (file, depth) -> {
+				walked.add(file.getName());
+				return true;
+			});
+			Collections.sort(walked);
+			assertEquals(Arrays.asList("large.bin", "small.txt"), walked);
+		}
+		assertEquals('-', Inode.fileInfo(0xC1A4, 1, 0, 0, 0, 0, "socket").charAt(0));
+	}
+
+	private static List<String> traverse(String image) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream console = System.out;
+
+		try (Volume volume = new Volume(image)) {
+			System.setOut(new PrintStream(out, true, "UTF-8"));
+			Volume.traverse(volume.getRoot(), 0);
+		} finally {
+			System.setOut(console);
+		}
+
+		List<String> lines = new ArrayList<>();
+		for (String line : out.toString("UTF-8").split("\\R")) {
+			if (!line.isEmpty())
+				lines.add(line);
+		}
+		return lines;
+	}
+
+	private static int indent(String line) {
+		int indent = 0;
+		while (line.charAt(indent) == ' ') {
+			indent++;
+		}
+		return indent;
+	}
+}
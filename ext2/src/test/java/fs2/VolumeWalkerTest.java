@@ -0,0 +1,96 @@
+package fs2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Processes the files of a tree on a pool of threads
+ * 
+ * @author Georgi Valchanov
+ */
+public class VolumeWalkerTest {
+
+	@Test
+	public void everyFileIsProcessedOnce() throws Exception {
+		try (Volume volume = new Volume(TestImages.files(1024).toString())) {
+			List<Ext2File> files = VolumeWalker.filesByFirstBlock(volume.getFile("/tree"), 2);
+			AtomicInteger[] counts = new AtomicInteger[files.size()];
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = new AtomicInteger();
+			}
+
+			VolumeWalker.forEachFile(files, 4, () -> (index, file) -> counts[index].incrementAndGet());
+
+			assertEquals(160, files.size());
+			for (AtomicInteger count : counts) {
+				assertEquals(1, count.get());
+			}
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void interruptionStopsTheWorkers() throws Exception {
+		try (Volume volume = new Volume(TestImages.files(1024).toString())) {
+			List<Ext2File> files = VolumeWalker.filesByFirstBlock(volume.getFile("/tree"), 2);
+			AtomicInteger processed = new AtomicInteger();
+			CountDownLatch started = new CountDownLatch(1);
+			AtomicReference<Throwable> thrown = new AtomicReference<>();
+
+			Thread caller = new Thread(() -> {
+				try {
+					VolumeWalker.forEachFile(files, 2, () -> (index, file) -> {
+						started.countDown();
+						processed.incrementAndGet();
+						file.fullyRead();
+						try {
+							Thread.sleep(20);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					});
+				} catch (Throwable e) {
+					thrown.set(e);
+				}
+			});
+			caller.start();
+
+			started.await();
+			caller.interrupt();
+			caller.join();
+			assertTrue(thrown.get() instanceof InterruptedException);
+
+			// the workers finish the files they hold and take no more
+			Thread.sleep(100);
+			int stopped = processed.get();
+			Thread.sleep(200);
+			assertEquals(stopped, processed.get());
+			assertTrue(stopped < files.size());
+
+			// the volume can still be read
+			assertEquals(TestImages.largeFileSize, volume.getFile("/data/large.bin").fullyRead().length);
+		}
+	}
+
+	@Test
+	public void errorOfAWorkerIsThrown() throws Exception {
+		try (Volume volume = new Volume(TestImages.files(1024).toString())) {
+			List<Ext2File> files = VolumeWalker.filesByFirstBlock(volume.getFile("/tree"), 2);
+			try {
+				VolumeWalker.forEachFile(files, 2, () -> (index, file) -> {
+					throw new UnsupportedOperationException(file.getAbsolutePath());
+				});
+				fail("the error of a worker was lost");
+			} catch (IllegalStateException e) {
+				assertTrue(e.getCause() instanceof UnsupportedOperationException);
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package fs2;
+
+/**
+ * Translates the index of a block in a file to the number of the block in the
+ * volume on demand. Only the indirect blocks on the way to the sought block are
+ * read, so the cost of a lookup depends on the level of indirection of the
+ * block and not on the size of the file.<br>
+ * The last indirect block holding data pointers is remembered for every level
+ * of indirection, so a lookup next to the previous one reads a single pointer.
+ * 
+ * @author Georgi Valchanov
+ */
+class BlockMapper {
+
+	/**
+	 * Number of pointers held by the inode directly
+	 */
+	private static final int directPointers = 12;
+
+	private final Volume volume;
+	private final Inode inode;
+	/**
+	 * Size of a block in bytes
+	 */
+	private final int blockSize;
+	/**
+	 * Number of pointers in an indirect block
+	 */
+	private final int perBlock;
+
+	/**
+	 * The last indirect block holding data pointers for every level of
+	 * indirection(index 0 is not used)
+	 */
+	private final PointerBlock[] recent = new PointerBlock[4];
+
+	BlockMapper(Volume volume, Inode inode) {
+		this.volume = volume;
+		this.inode = inode;
+		blockSize = volume.getBlockSize();
+		perBlock = blockSize / 4;
+	}
+
+	/**
+	 * Returns the number of the block in the volume that holds a block of the file
+	 * 
+	 * @param logical
+	 *          index of the block in the file
+	 * @return number of the block in the volume </br>
+	 *         0 - if the block is a hole
+	 */
+	long map(long logical) {
+		if (logical < directPointers)
+			return inode.getDirectPointer((int) logical) & 0xffffffffL;
+
+		// find the level of indirection of the block and its index under that
+		// indirect pointer
+		long index = logical - directPointers;
+		int level = 1;
+		long under = perBlock;
+		while (index >= under) {
+			index -= under;
+			under *= perBlock;
+			if (++level > 3)
+				return 0;
+		}
+
+		// the group of blocks whose pointers are in the same indirect block
+		long group = index / perBlock;
+		int slot = (int) (index % perBlock);
+
+		PointerBlock last = recent[level];
+		if (last == null || last.group != group) {
+			long block = leafBlock(level, index);
+			if (block == 0)
+				return 0;
+
+			last = new PointerBlock(group, block);
+			recent[level] = last;
+		}
+
+		return pointerAt(last.block, slot);
+	}
+
+	/**
+	 * Walks the indirect blocks from the inode down to the block that holds the
+	 * data pointer of a block
+	 * 
+	 * @param level
+	 *          of indirection of the block
+	 * @param index
+	 *          of the block under the indirect pointer of the inode
+	 * @return number of the indirect block holding the data pointer </br>
+	 *         0 - if the block is in a hole
+	 */
+	private long leafBlock(int level, long index) {
+		long block = inode.getIndirectPointer(level) & 0xffffffffL;
+
+		// every step goes one level of indirection down
+		long under = 1;
+		for (int i = 1; i < level; i++) {
+			under *= perBlock;
+		}
+
+		for (int i = level; i > 1 && block != 0; i--) {
+			block = pointerAt(block, (int) (index / under % perBlock));
+			under /= perBlock;
+		}
+
+		return block;
+	}
+
+	/**
+	 * Reads a pointer from an indirect block
+	 * 
+	 * @param block
+	 *          number of the indirect block
+	 * @param slot
+	 *          of the pointer in the block
+	 * @return the pointer
+	 */
+	private long pointerAt(long block, int slot) {
+		return volume.getIntAt(block * blockSize + slot * 4L) & 0xffffffffL;
+	}
+
+	/**
+	 * An indirect block and the group of data blocks its pointers point to
+	 */
+	private static class PointerBlock {
+		final long group;
+		final long block;
+
+		PointerBlock(long group, long block) {
+			this.group = group;
+			this.block = block;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package fs2;
+
+/**
+ * A snapshot of the counters of one of the caches of a {@link Volume}
+ */
+public class CacheStats {
+
+	private final int capacity;
+	private final int size;
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+
+	CacheStats(int capacity, int size, long hits, long misses, long evictions) {
+		this.capacity = capacity;
+		this.size = size;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+	}
+
+	/**
+	 * Returns the maximum number of entries the cache can hold
+	 * 
+	 * @return the maximum number of entries the cache can hold
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of entries in the cache
+	 * 
+	 * @return the number of entries in the cache
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns how many lookups were found in the cache
+	 * 
+	 * @return how many lookups were found in the cache
+	 */
+	public long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns how many lookups were not found in the cache
+	 * 
+	 * @return how many lookups were not found in the cache
+	 */
+	public long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns how many entries were dropped to make space for new ones
+	 * 
+	 * @return how many entries were dropped to make space for new ones
+	 */
+	public long evictions() {
+		return evictions;
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + size + "/" + capacity + " hits=" + hits + " misses=" + misses + " evictions=" + evictions;
+	}
+}
@@ -0,0 +1,446 @@
+package fs2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads an image with positional {@link FileChannel} reads into a fixed pool
+ * of direct buffers, so neither the heap nor the address space grows with the
+ * image. The pool is split into stripes, each with its own lock, and the pages
+ * of a stripe are evicted with the CLOCK algorithm.<br>
+ * Pages read through the small accessors hold metadata and are kept ahead of
+ * the pages of file contents: a metadata page is only evicted when the stripe
+ * holds nothing else. Copies of a page or more go straight from the channel to
+ * the destination, so large reads do not flush the cache.
+ * 
+ * @author Georgi Valchanov
+ */
+class CachedBackend implements VolumeBackend {
+
+	/**
+	 * Size of a page of the cache
+	 */
+	static final int pageSize = 64 * 1024;
+	private static final int pageShift = 16;
+	private static final int pageMask = pageSize - 1;
+
+	/**
+	 * Most stripes of the pool
+	 */
+	private static final int maxStripes = 16;
+
+	private final FileChannel channel;
+	private final long length;
+	private final Stripe[] stripes;
+
+	/**
+	 * Creates a cache over an image
+	 * 
+	 * @param channel
+	 *          - open on the image. It is closed with the backend
+	 * @param budget
+	 *          - bytes of direct memory used by the pages(at least one page)
+	 * @throws IOException
+	 *           if the size of the image cannot be read
+	 */
+	CachedBackend(FileChannel channel, long budget) throws IOException {
+		if (budget < pageSize)
+			throw new IllegalArgumentException("the cache must hold at least one page of " + pageSize + " bytes");
+
+		this.channel = channel;
+		length = channel.size();
+
+		long pages = Math.min(budget / pageSize, Integer.MAX_VALUE);
+		// a stripe gets at least 4 pages, and the number of stripes is a power of 2
+		int count = Integer.highestOneBit((int) Math.max(1, Math.min(maxStripes, pages / 4)));
+
+		stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new Stripe((int) (pages / count));
+		}
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public byte getByte(long offset) {
+		long page = offset >>> pageShift;
+		return stripe(page).getByte(page, (int) (offset & pageMask));
+	}
+
+	@Override
+	public short getShort(long offset) {
+		int inPage = (int) (offset & pageMask);
+		if (inPage + 2 > pageSize)
+			return (short) ((getByte(offset) & 0xff) | (getByte(offset + 1) << 8));
+
+		long page = offset >>> pageShift;
+		return stripe(page).getShort(page, inPage);
+	}
+
+	@Override
+	public int getInt(long offset) {
+		int inPage = (int) (offset & pageMask);
+		if (inPage + 4 > pageSize)
+			return (getShort(offset) & 0xffff) | (getShort(offset + 2) << 16);
+
+		long page = offset >>> pageShift;
+		return stripe(page).getInt(page, inPage);
+	}
+
+	@Override
+	public void copy(long offset, byte[] array, int start, int length) {
+		copy(offset, ByteBuffer.wrap(array, start, length), length);
+	}
+
+	@Override
+	public void copy(long offset, ByteBuffer dst, int length) {
+		if (length >= pageSize) {
+			readDirect(offset, dst, length);
+			return;
+		}
+
+		while (length > 0) {
+			long page = offset >>> pageShift;
+			int inPage = (int) (offset & pageMask);
+			int chunk = Math.min(length, pageSize - inPage);
+
+			stripe(page).copy(page, inPage, dst, chunk);
+
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+
+	@Override
+	public void transferTo(long offset, long count, WritableByteChannel target) throws IOException {
+		MappedBackend.transfer(channel, offset, count, target);
+	}
+
+	@Override
+	public CacheStats stats() {
+		int capacity = 0;
+		int size = 0;
+		long hits = 0;
+		long misses = 0;
+		long evictions = 0;
+
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				capacity += stripe.buffers.length;
+				size += stripe.used - stripe.freeCount;
+				hits += stripe.hits;
+				misses += stripe.misses;
+				evictions += stripe.evictions;
+			}
+		}
+
+		return new CacheStats(capacity, size, hits, misses, evictions);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private Stripe stripe(long page) {
+		return stripes[(int) page & (stripes.length - 1)];
+	}
+
+	/**
+	 * Reads bytes of the image straight into a buffer, past the cache
+	 */
+	private void readDirect(long offset, ByteBuffer dst, int length) {
+		ByteBuffer target = dst.duplicate();
+		target.limit(target.position() + length);
+
+		fill(target, offset);
+		dst.position(dst.position() + length);
+	}
+
+	/**
+	 * Fills a buffer with bytes of the image
+	 * 
+	 * @param buffer
+	 *          - filled up to its limit
+	 * @param offset
+	 *          - byte in the image from which the reading starts
+	 */
+	private void fill(ByteBuffer buffer, long offset) {
+		try {
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, offset);
+				if (read < 0)
+					throw new EOFException("read past the end of the image at " + offset);
+
+				offset += read;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * A part of the pool. It holds the pages whose number falls to it
+	 */
+	private class Stripe {
+		final ByteBuffer[] buffers;
+		/**
+		 * Number of the page held by each frame
+		 */
+		final long[] pages;
+		/**
+		 * Whether each frame was used since the hand last passed it
+		 */
+		final boolean[] referenced;
+		/**
+		 * Whether each frame holds metadata
+		 */
+		final boolean[] metadata;
+		/**
+		 * Maps the numbers of the held pages to their frames
+		 */
+		final PageTable frames;
+		/**
+		 * Frames which hold no page because reading their page failed
+		 */
+		final int[] free;
+		int freeCount;
+
+		/**
+		 * Number of frames handed out. The frames are filled in order before any
+		 * is evicted
+		 */
+		int used;
+		/**
+		 * The frame the CLOCK hand points to
+		 */
+		int hand;
+
+		long hits;
+		long misses;
+		long evictions;
+
+		Stripe(int capacity) {
+			buffers = new ByteBuffer[capacity];
+			pages = new long[capacity];
+			referenced = new boolean[capacity];
+			metadata = new boolean[capacity];
+			free = new int[capacity];
+			frames = new PageTable(capacity);
+		}
+
+		synchronized byte getByte(long page, int inPage) {
+			return buffers[frame(page, true)].get(inPage);
+		}
+
+		synchronized short getShort(long page, int inPage) {
+			return buffers[frame(page, true)].getShort(inPage);
+		}
+
+		synchronized int getInt(long page, int inPage) {
+			return buffers[frame(page, true)].getInt(inPage);
+		}
+
+		synchronized void copy(long page, int inPage, ByteBuffer dst, int length) {
+			ByteBuffer view = buffers[frame(page, false)].duplicate();
+			view.limit(inPage + length);
+			view.position(inPage);
+			dst.put(view);
+		}
+
+		/**
+		 * Returns the frame holding a page, reading the page if it is not held
+		 * 
+		 * @param page
+		 *          - number of the page
+		 * @param meta
+		 *          - whether the page is read for its metadata
+		 * @return index of the frame
+		 */
+		private int frame(long page, boolean meta) {
+			int frame = frames.get(page);
+
+			if (frame >= 0) {
+				hits++;
+			}
+			else {
+				misses++;
+				frame = victim();
+				load(frame, page);
+			}
+
+			referenced[frame] = true;
+			// a page becomes metadata once it is read for its metadata
+			metadata[frame] |= meta;
+			return frame;
+		}
+
+		/**
+		 * Reads a page into a frame. If the page cannot be read the frame is put
+		 * on the free list, holding no page
+		 */
+		private void load(int frame, long page) {
+			long start = page << pageShift;
+			boolean loaded = false;
+
+			try {
+				if (start >= length)
+					throw new UncheckedIOException(new EOFException("read past the end of the image at " + start));
+
+				if (buffers[frame] == null)
+					buffers[frame] = ByteBuffer.allocateDirect(pageSize).order(ByteOrder.LITTLE_ENDIAN);
+
+				ByteBuffer buffer = buffers[frame];
+				buffer.clear();
+				buffer.limit((int) Math.min(pageSize, length - start));
+				fill(buffer, start);
+				buffer.clear();
+				loaded = true;
+			} finally {
+				if (!loaded) {
+					// the old page of the frame was evicted already, so a later eviction of
+					// the frame must not remove the mapping of that page from another frame
+					pages[frame] = -1;
+					free[freeCount++] = frame;
+				}
+			}
+
+			pages[frame] = page;
+			metadata[frame] = false;
+			frames.put(page, frame);
+		}
+
+		/**
+		 * Frees a frame for a new page. Pages of file contents are evicted first,
+		 * with the CLOCK algorithm, and metadata pages only when there are no
+		 * others
+		 * 
+		 * @return index of the freed frame
+		 */
+		private int victim() {
+			if (freeCount > 0)
+				return free[--freeCount];
+			if (used < buffers.length)
+				return used++;
+
+			// two turns of the hand clear the bits of all the data pages
+			for (int i = 0; i < 2 * buffers.length; i++) {
+				int frame = advance();
+				if (metadata[frame])
+					continue;
+
+				if (!referenced[frame])
+					return evict(frame);
+				referenced[frame] = false;
+			}
+
+			// only metadata is held
+			while (true) {
+				int frame = advance();
+
+				if (!referenced[frame])
+					return evict(frame);
+				referenced[frame] = false;
+			}
+		}
+
+		private int advance() {
+			int frame = hand;
+			hand = (hand + 1) % buffers.length;
+			return frame;
+		}
+
+		private int evict(int frame) {
+			if (pages[frame] >= 0)
+				frames.remove(pages[frame]);
+			evictions++;
+			return frame;
+		}
+	}
+
+	/**
+	 * Maps page numbers to frames without boxing them. The keys are kept with
+	 * linear probing in a table of at least twice as many slots as there are
+	 * frames, and removals shift the following keys back so no tombstones are
+	 * left
+	 */
+	private static final class PageTable {
+		/**
+		 * Key of an empty slot
+		 */
+		private static final long empty = -1;
+
+		private final long[] keys;
+		private final int[] values;
+		private final int mask;
+
+		PageTable(int frames) {
+			int slots = Integer.highestOneBit(Math.max(2, frames) * 2 - 1) * 2;
+			keys = new long[slots];
+			values = new int[slots];
+			mask = slots - 1;
+			Arrays.fill(keys, empty);
+		}
+
+		/**
+		 * Returns the frame of a page
+		 * 
+		 * @return the frame, or -1 if the page is not held
+		 */
+		int get(long page) {
+			for (int slot = slot(page);; slot = (slot + 1) & mask) {
+				long key = keys[slot];
+				if (key == page)
+					return values[slot];
+				if (key == empty)
+					return -1;
+			}
+		}
+
+		void put(long page, int frame) {
+			int slot = slot(page);
+			while (keys[slot] != empty && keys[slot] != page) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = page;
+			values[slot] = frame;
+		}
+
+		void remove(long page) {
+			int slot = slot(page);
+			while (keys[slot] != page) {
+				if (keys[slot] == empty)
+					return;
+				slot = (slot + 1) & mask;
+			}
+
+			// move back the keys of the run after the removed one which would not be
+			// found past the hole
+			for (int next = (slot + 1) & mask; keys[next] != empty; next = (next + 1) & mask) {
+				int home = slot(keys[next]);
+				if (((next - home) & mask) >= ((next - slot) & mask)) {
+					keys[slot] = keys[next];
+					values[slot] = values[next];
+					slot = next;
+				}
+			}
+			keys[slot] = empty;
+		}
+
+		private int slot(long page) {
+			// spread the page numbers, which are mostly consecutive within a stripe
+			long hash = page * 0x9E3779B97F4A7C15L;
+			return (int) (hash >>> 32) & mask;
+		}
+	}
+}
@@ -0,0 +1,404 @@
+package fs2;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Hashes the contents of every regular file of a directory tree. The files are
+ * hashed by a pool of workers, taking them in the order of their first block
+ * in the volume, and each worker streams the files through a buffer of its own
+ * into the digest, so the memory used does not grow with the size of the files.
+ * A file which cannot be read is recorded as a failure in the manifest and does
+ * not stop the others
+ * 
+ * @author Georgi Valchanov
+ */
+public class ContentHasher {
+
+	/**
+	 * Size of the buffer of a worker
+	 */
+	private static final int bufferSize = 1 << 20;
+
+	/**
+	 * The algorithms a file can be hashed with
+	 */
+	public enum Algorithm {
+		/**
+		 * SHA-256, for audit
+		 */
+		SHA256("SHA-256", 64) {
+			@Override
+			Digest newDigest() {
+				MessageDigest digest;
+				try {
+					digest = MessageDigest.getInstance(name);
+				} catch (NoSuchAlgorithmException e) {
+					// every Java platform must support SHA-256
+					throw new IllegalStateException(e);
+				}
+
+				return new Digest() {
+					@Override
+					public void update(byte[] bytes, int length) {
+						digest.update(bytes, 0, length);
+					}
+
+					@Override
+					public String finish() {
+						return hex(digest.digest());
+					}
+				};
+			}
+		},
+		/**
+		 * CRC-32C, a fast check against accidental changes
+		 */
+		CRC32C("CRC32C", 8) {
+			@Override
+			Digest newDigest() {
+				CRC32C checksum = new CRC32C();
+
+				return new Digest() {
+					@Override
+					public void update(byte[] bytes, int length) {
+						checksum.update(bytes, 0, length);
+					}
+
+					@Override
+					public String finish() {
+						String value = String.format("%08x", checksum.getValue());
+						checksum.reset();
+						return value;
+					}
+				};
+			}
+		};
+
+		final String name;
+		/**
+		 * Number of hex digits of a digest
+		 */
+		private final int hexLength;
+
+		Algorithm(String name, int hexLength) {
+			this.name = name;
+			this.hexLength = hexLength;
+		}
+
+		/**
+		 * Creates a digest which is reset every time it is finished
+		 * 
+		 * @return a new digest
+		 */
+		abstract Digest newDigest();
+
+		/**
+		 * Finds the algorithm of a digest by its length
+		 * 
+		 * @param digest
+		 *          - in hex
+		 * @return the algorithm of the digest</br>
+		 *         null if no algorithm makes digests like it
+		 */
+		static Algorithm ofDigest(String digest) {
+			for (int i = 0; i < digest.length(); i++) {
+				if (Character.digit(digest.charAt(i), 16) < 0)
+					return null;
+			}
+			for (Algorithm algorithm : values()) {
+				if (algorithm.hexLength == digest.length())
+					return algorithm;
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private final Volume volume;
+	private final Algorithm algorithm;
+	private final int parallelism;
+
+	/**
+	 * Creates a new hasher
+	 * 
+	 * @param volume
+	 *          - whose files are hashed
+	 * @param algorithm
+	 *          - of the digests
+	 * @param parallelism
+	 *          - number of files hashed at the same time
+	 */
+	public ContentHasher(Volume volume, Algorithm algorithm, int parallelism) {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+
+		this.volume = volume;
+		this.algorithm = algorithm;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Hashes every regular file of the volume
+	 * 
+	 * @return the manifest of the volume
+	 * @throws InterruptedException
+	 *           if the hashing is interrupted
+	 */
+	public HashManifest hash() throws InterruptedException {
+		return hash(volume.getRoot());
+	}
+
+	/**
+	 * Hashes every regular file of a directory tree
+	 * 
+	 * @param directory
+	 *          - where the tree starts
+	 * @return the manifest of the tree
+	 * @throws InterruptedException
+	 *           if the hashing is interrupted
+	 */
+	public HashManifest hash(Ext2File directory) throws InterruptedException {
+		return hash(directory, algorithm);
+	}
+
+	/**
+	 * Hashes the volume again and compares it with a manifest. The files are
+	 * hashed with the algorithm of the manifest
+	 * 
+	 * @param expected
+	 *          - the manifest the volume is checked against
+	 * @return the differences between the volume and the manifest
+	 * @throws InterruptedException
+	 *           if the hashing is interrupted
+	 */
+	public Verification verify(HashManifest expected) throws InterruptedException {
+		return verify(volume.getRoot(), expected);
+	}
+
+	/**
+	 * Hashes a directory tree again and compares it with a manifest. The files
+	 * are hashed with the algorithm of the manifest
+	 * 
+	 * @param directory
+	 *          - where the tree starts
+	 * @param expected
+	 *          - the manifest the tree is checked against
+	 * @return the differences between the tree and the manifest
+	 * @throws InterruptedException
+	 *           if the hashing is interrupted
+	 */
+	public Verification verify(Ext2File directory, HashManifest expected) throws InterruptedException {
+		HashManifest actual = hash(directory, expected.algorithm());
+		Verification verification = new Verification();
+
+		// both lists are sorted by path, so they are merged
+		Iterator<HashManifest.Entry> left = expected.entries().iterator();
+		Iterator<HashManifest.Entry> right = actual.entries().iterator();
+		HashManifest.Entry want = left.hasNext() ? left.next() : null;
+		HashManifest.Entry got = right.hasNext() ? right.next() : null;
+
+		while (want != null || got != null) {
+			int order = want == null ? 1 : got == null ? -1 : want.compareTo(got);
+
+			if (order < 0) {
+				verification.missing.add(want.path());
+				want = left.hasNext() ? left.next() : null;
+			}
+			else if (order > 0) {
+				verification.unexpected.add(got.path());
+				got = right.hasNext() ? right.next() : null;
+			}
+			else {
+				if (!got.succeeded())
+					verification.unreadable.add(got.path());
+				else if (got.digest().equals(want.digest()))
+					verification.matched++;
+				else
+					verification.changed.add(got.path());
+
+				want = left.hasNext() ? left.next() : null;
+				got = right.hasNext() ? right.next() : null;
+			}
+		}
+
+		return verification;
+	}
+
+	/**
+	 * Hashes every regular file of a directory tree
+	 * 
+	 * @param directory
+	 *          - where the tree starts
+	 * @param algorithm
+	 *          - of the digests
+	 * @return the manifest of the tree
+	 * @throws InterruptedException
+	 *           if the hashing is interrupted
+	 */
+	private HashManifest hash(Ext2File directory, Algorithm algorithm) throws InterruptedException {
+		// hash the files in the order they are laid out in the volume
+		List<Ext2File> files = VolumeWalker.filesByFirstBlock(directory, parallelism);
+		String[] digests = new String[files.size()];
+		Exception[] errors = new Exception[files.size()];
+
+		VolumeWalker.forEachFile(files, parallelism, () -> {
+			Digest digest = algorithm.newDigest();
+			byte[] buffer = new byte[bufferSize];
+
+			return (index, file) -> {
+				try {
+					digests[index] = hash(file, digest, buffer);
+				} catch (RuntimeException e) {
+					// the next file starts a new digest
+					digest.finish();
+					errors[index] = e;
+				}
+			};
+		});
+
+		List<HashManifest.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < files.size(); i++) {
+			String path = files.get(i).getAbsolutePath();
+			if (errors[i] == null)
+				entries.add(new HashManifest.Entry(path, digests[i]));
+			else
+				entries.add(new HashManifest.Entry(path, errors[i]));
+		}
+		Collections.sort(entries);
+
+		return new HashManifest(algorithm, entries);
+	}
+
+	/**
+	 * Streams a file into a digest
+	 * 
+	 * @param file
+	 *          - to be hashed
+	 * @param digest
+	 *          - where the contents are fed
+	 * @param buffer
+	 *          - through which the contents are read
+	 * @return the digest of the file in hex
+	 */
+	private static String hash(Ext2File file, Digest digest, byte[] buffer) {
+		ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+		long position = 0;
+		int read;
+
+		wrapped.clear();
+		while ((read = file.read(position, wrapped)) > 0) {
+			digest.update(buffer, read);
+			position += read;
+			wrapped.clear();
+		}
+
+		return digest.finish();
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * A running digest of one file at a time
+	 */
+	interface Digest {
+
+		void update(byte[] bytes, int length);
+
+		/**
+		 * Returns the digest of the bytes so far and starts a new one
+		 * 
+		 * @return the digest in hex
+		 */
+		String finish();
+	}
+
+	/**
+	 * The differences between a directory tree and a manifest
+	 */
+	public static class Verification {
+		private int matched;
+		private final List<String> changed = new ArrayList<>();
+		private final List<String> missing = new ArrayList<>();
+		private final List<String> unexpected = new ArrayList<>();
+		private final List<String> unreadable = new ArrayList<>();
+
+		/**
+		 * Returns the number of files whose contents match the manifest
+		 * 
+		 * @return the number of matching files
+		 */
+		public int matched() {
+			return matched;
+		}
+
+		/**
+		 * Returns the paths of the files whose contents differ from the manifest
+		 * 
+		 * @return the paths of the changed files
+		 */
+		public List<String> changed() {
+			return Collections.unmodifiableList(changed);
+		}
+
+		/**
+		 * Returns the paths in the manifest that are not in the tree
+		 * 
+		 * @return the paths of the missing files
+		 */
+		public List<String> missing() {
+			return Collections.unmodifiableList(missing);
+		}
+
+		/**
+		 * Returns the paths in the tree that are not in the manifest
+		 * 
+		 * @return the paths of the unexpected files
+		 */
+		public List<String> unexpected() {
+			return Collections.unmodifiableList(unexpected);
+		}
+
+		/**
+		 * Returns the paths in the manifest whose files are in the tree but could
+		 * not be read
+		 * 
+		 * @return the paths of the unreadable files
+		 */
+		public List<String> unreadable() {
+			return Collections.unmodifiableList(unreadable);
+		}
+
+		/**
+		 * Tests whether the tree matches the manifest exactly
+		 * 
+		 * @return true if no file was changed, is missing, is unexpected or could
+		 *         not be read
+		 */
+		public boolean isClean() {
+			return changed.isEmpty() && missing.isEmpty() && unexpected.isEmpty() && unreadable.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d matched, %d changed, %d missing, %d unexpected, %d unreadable", matched,
+					changed.size(), missing.size(), unexpected.size(), unreadable.size());
+		}
+	}
+}
@@ -0,0 +1,364 @@
+package fs2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches the contents of the regular files of a directory tree for a literal
+ * or a regular expression. The files are searched by a pool of workers in the
+ * order of their first block in the volume. A worker reads a file in windows
+ * of {@link #bufferSize} bytes and keeps the tail of each window in front of
+ * the next one, so matches which cross blocks or windows are found without
+ * reading the whole file into memory. A file which cannot be read is skipped
+ * and recorded in the failures of the result
+ * 
+ * @author Georgi Valchanov
+ */
+class ContentSearch {
+
+	/**
+	 * Number of new bytes read into a window
+	 */
+	static final int bufferSize = 1 << 20;
+
+	private final SearchOptions options;
+	/**
+	 * The literal searched for(null for a regular expression)
+	 */
+	private final byte[] literal;
+	/**
+	 * The regular expression searched for(null for a literal)
+	 */
+	private final Pattern pattern;
+	/**
+	 * Number of bytes of a window kept for the next one. A match starting before
+	 * them fits in the window
+	 */
+	private final int overlap;
+
+	/**
+	 * Creates a search for a pattern
+	 * 
+	 * @param pattern
+	 *          - a literal, matched against its UTF-8 bytes, or a regular
+	 *          expression
+	 * @param options
+	 *          - how the pattern is matched
+	 */
+	ContentSearch(String pattern, SearchOptions options) {
+		this.options = options;
+
+		if (options.isRegex()) {
+			this.pattern = Pattern.compile(pattern, options.isIgnoreCase() ? Pattern.CASE_INSENSITIVE : 0);
+			literal = null;
+			overlap = options.maxMatchLength() - 1;
+		}
+		else {
+			this.pattern = null;
+			literal = checkLiteral(pattern.getBytes(StandardCharsets.UTF_8));
+			overlap = literal.length - 1;
+		}
+	}
+
+	/**
+	 * Creates a search for a sequence of bytes
+	 * 
+	 * @param literal
+	 *          - the bytes searched for
+	 * @param options
+	 *          - how the bytes are matched. They are never taken as a regular
+	 *          expression
+	 */
+	ContentSearch(byte[] literal, SearchOptions options) {
+		this.options = options;
+		this.literal = checkLiteral(literal.clone());
+		pattern = null;
+		overlap = literal.length - 1;
+	}
+
+	/**
+	 * Searches every regular file of a directory tree
+	 * 
+	 * @param directory
+	 *          - where the tree starts
+	 * @return the matches, sorted by path and offset, and the files which could
+	 *         not be read
+	 * @throws InterruptedException
+	 *           if the search is interrupted
+	 */
+	SearchResult run(Ext2File directory) throws InterruptedException {
+		// search the files in the order they are laid out in the volume
+		List<Ext2File> files = VolumeWalker.filesByFirstBlock(directory, options.parallelism());
+		List<List<SearchHit>> hits = new ArrayList<>(Collections.nCopies(files.size(), null));
+		Map<String, Exception> failures = new ConcurrentSkipListMap<>();
+
+		VolumeWalker.forEachFile(files, options.parallelism(), () -> {
+			byte[] buffer = new byte[overlap + bufferSize];
+			Finder finder = newFinder(buffer);
+
+			return (index, file) -> {
+				try {
+					hits.set(index, search(file, finder, buffer));
+				} catch (RuntimeException e) {
+					failures.put(file.getAbsolutePath(), e);
+				}
+			};
+		});
+
+		List<List<SearchHit>> found = new ArrayList<>();
+		for (List<SearchHit> list : hits) {
+			if (list != null && !list.isEmpty())
+				found.add(list);
+		}
+		found.sort(Comparator.comparing(list -> list.get(0).path()));
+
+		List<SearchHit> result = new ArrayList<>();
+		for (List<SearchHit> list : found) {
+			result.addAll(list);
+		}
+		return new SearchResult(result, failures);
+	}
+
+	/**
+	 * Searches a single file
+	 * 
+	 * @param file
+	 *          - to be searched
+	 * @param finder
+	 *          - finds the pattern in the buffer
+	 * @param buffer
+	 *          - the window through which the file is read
+	 * @return the matches in the file, by offset
+	 */
+	private List<SearchHit> search(Ext2File file, Finder finder, byte[] buffer) {
+		List<SearchHit> hits = new ArrayList<>();
+		long size = file.size();
+		// offset in the file of the first byte of the window
+		long base = 0;
+		// number of bytes in the window
+		int length = 0;
+		// offset in the file from which the next match may start, so matches do not
+		// overlap
+		long next = 0;
+
+		while (base + length < size) {
+			int read = file.read(base + length, ByteBuffer.wrap(buffer, length, buffer.length - length));
+			if (read <= 0)
+				break;
+			length += read;
+
+			boolean last = base + length >= size;
+			// matches starting in the overlap are left to the next window, which holds
+			// them whole
+			int limit = last ? length : length - overlap;
+			int from = (int) (next - base);
+
+			while (from < limit) {
+				int start = finder.find(buffer, from, length);
+				if (start < 0 || start >= limit)
+					break;
+
+				int end = finder.end();
+				hits.add(hit(file, base + start, end - start));
+				if (hits.size() >= options.maxHitsPerFile())
+					return hits;
+
+				// an empty match moves on by a byte
+				from = Math.max(end, start + 1);
+			}
+			next = base + Math.max(from, limit);
+
+			if (!last) {
+				System.arraycopy(buffer, limit, buffer, 0, length - limit);
+				base += limit;
+				length -= limit;
+			}
+		}
+
+		return hits;
+	}
+
+	/**
+	 * Reads a match and its context
+	 */
+	private SearchHit hit(Ext2File file, long offset, int length) {
+		long start = Math.max(0, offset - options.context());
+		long end = Math.min(file.size(), offset + length + options.context());
+		byte[] context = file.read(start, (int) (end - start));
+
+		return new SearchHit(file.getAbsolutePath(), offset, length, start, context == null ? new byte[0] : context);
+	}
+
+	/**
+	 * Creates the finder of a worker
+	 * 
+	 * @param buffer
+	 *          - the window of the worker
+	 * @return a new finder
+	 */
+	private Finder newFinder(byte[] buffer) {
+		return pattern != null ? new Expression(pattern, buffer) : new Literal(literal, options.isIgnoreCase());
+	}
+
+	private static byte[] checkLiteral(byte[] literal) {
+		if (literal.length == 0)
+			throw new IllegalArgumentException("the pattern is empty");
+		if (literal.length > bufferSize)
+			throw new IllegalArgumentException("the pattern is longer than " + bufferSize + " bytes");
+
+		return literal;
+	}
+
+	/**
+	 * Finds a pattern in a window
+	 */
+	private interface Finder {
+
+		/**
+		 * Finds the first match which starts at or after {@code from} and ends by
+		 * {@code to}
+		 * 
+		 * @param window
+		 *          - the bytes searched
+		 * @param from
+		 *          - where the search starts
+		 * @param to
+		 *          - the end of the bytes in the window
+		 * @return the start of the match</br>
+		 *         -1 if there is none
+		 */
+		int find(byte[] window, int from, int to);
+
+		/**
+		 * Returns the end of the last match
+		 * 
+		 * @return the index after the last byte of the match
+		 */
+		int end();
+	}
+
+	/**
+	 * Finds a literal with the Boyer-Moore-Horspool algorithm. Ignoring the case
+	 * folds the ASCII letters of both the pattern and the window
+	 */
+	private static class Literal implements Finder {
+		private final byte[] pattern;
+		/**
+		 * How far the pattern moves when it does not match, by the byte under its
+		 * last byte
+		 */
+		private final int[] shift = new int[256];
+		/**
+		 * Maps every byte to the byte it is compared as
+		 */
+		private final byte[] fold = new byte[256];
+		private int end;
+
+		Literal(byte[] literal, boolean ignoreCase) {
+			for (int i = 0; i < 256; i++) {
+				fold[i] = (byte) (ignoreCase && i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+			}
+
+			pattern = new byte[literal.length];
+			for (int i = 0; i < literal.length; i++) {
+				pattern[i] = fold[literal[i] & 0xff];
+			}
+
+			int last = pattern.length - 1;
+			for (int i = 0; i < 256; i++) {
+				shift[i] = pattern.length;
+			}
+			for (int i = 0; i < last; i++) {
+				shift[pattern[i] & 0xff] = last - i;
+			}
+		}
+
+		@Override
+		public int find(byte[] window, int from, int to) {
+			int last = pattern.length - 1;
+
+			for (int i = from; i + last < to;) {
+				int j = last;
+				while (j >= 0 && fold[window[i + j] & 0xff] == pattern[j]) {
+					j--;
+				}
+
+				if (j < 0) {
+					end = i + pattern.length;
+					return i;
+				}
+				i += shift[fold[window[i + last] & 0xff] & 0xff];
+			}
+
+			return -1;
+		}
+
+		@Override
+		public int end() {
+			return end;
+		}
+	}
+
+	/**
+	 * Finds a regular expression. The window is shown to the matcher as
+	 * ISO-8859-1 text, a character per byte, without being copied
+	 */
+	private static class Expression implements Finder, CharSequence {
+		private final byte[] window;
+		private final Matcher matcher;
+		/**
+		 * End of the bytes in the window
+		 */
+		private int length;
+
+		Expression(Pattern pattern, byte[] window) {
+			this.window = window;
+			matcher = pattern.matcher(this);
+			// look around and anchors see the bytes kept from the previous window
+			matcher.useTransparentBounds(true);
+			matcher.useAnchoringBounds(false);
+		}
+
+		@Override
+		public int find(byte[] window, int from, int to) {
+			length = to;
+			matcher.reset();
+			matcher.region(from, to);
+
+			return matcher.find() ? matcher.start() : -1;
+		}
+
+		@Override
+		public int end() {
+			return matcher.end();
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (window[index] & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(window, start, end - start, StandardCharsets.ISO_8859_1);
+		}
+
+		@Override
+		public String toString() {
+			return new String(window, 0, length, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
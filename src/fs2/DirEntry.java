@@ -0,0 +1,143 @@
+package fs2;
+
+/**
+ * An entry of a directory. The name is decoded from the volume and the inode is
+ * read only when they are asked for
+ * 
+ * @author Georgi Valchanov
+ */
+public class DirEntry {
+
+	/**
+	 * Offsets
+	 */
+	static final int inode_number = 0;
+	static final int rec_len = 4;
+	static final int name_len = 6;
+	static final int file_type = 7;
+	static final int name = 8;
+
+	/**
+	 * The value of the file type field of a directory
+	 */
+	private static final int typeDirectory = 2;
+
+	private final Volume volume;
+	/**
+	 * The directory holding this entry
+	 */
+	private final Ext2File parent;
+	/**
+	 * Offset of the entry in the volume
+	 */
+	private final long offset;
+	private final int inodeNumber;
+	private final int nameLength;
+
+	private String nameString;
+
+	DirEntry(Volume volume, Ext2File parent, long offset) {
+		this.volume = volume;
+		this.parent = parent;
+		this.offset = offset;
+
+		inodeNumber = volume.getIntAt(offset + inode_number);
+		nameLength = volume.getByteAt(offset + name_len) & 0xff;
+	}
+
+	/**
+	 * Returns the name of the file
+	 * 
+	 * @return name of file
+	 */
+	public String getName() {
+		if (nameString == null)
+			nameString = volume.getStringAt(offset + name, nameLength);
+
+		return nameString;
+	}
+
+	/**
+	 * Tests whether the name of this entry is {@code other} without decoding the
+	 * name
+	 * 
+	 * @param other
+	 *          name to compare with
+	 * @return true if the names are equal
+	 */
+	public boolean nameEquals(String other) {
+		if (other.length() != nameLength)
+			return false;
+
+		for (int i = 0; i < nameLength; i++) {
+			if ((volume.getByteAt(offset + name + i) & 0xff) != other.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of the inode of the file
+	 * 
+	 * @return the number of the inode of the file
+	 */
+	public int getInodeNumber() {
+		return inodeNumber;
+	}
+
+	/**
+	 * Returns the inode of the file. It is read from the volume(or its inode
+	 * cache) on every call
+	 * 
+	 * @return the inode of the file
+	 */
+	public Inode getInode() {
+		return volume.getInode(inodeNumber);
+	}
+
+	/**
+	 * Returns a view of the inode of the file. Nothing is read from the inode
+	 * until the view is used and the inode cache is left alone
+	 * 
+	 * @param view
+	 *          a view which is moved to the inode of the file
+	 * @return the view
+	 */
+	public InodeView viewInode(InodeView view) {
+		return view.moveTo(inodeNumber);
+	}
+
+	/**
+	 * Tests whether the file is a directory. The file type stored in the entry is
+	 * used when the volume records it, so the inode is not read
+	 * 
+	 * @return true if the file is a directory
+	 */
+	public boolean isDirectory() {
+		int type = volume.getByteAt(offset + file_type);
+
+		if (type != 0)
+			return type == typeDirectory;
+
+		return new InodeView(volume, inodeNumber).isDirectory();
+	}
+
+	/**
+	 * Returns the file this entry points to
+	 * 
+	 * @return the file this entry points to
+	 */
+	public Ext2File toExt2File() {
+		String directory = parent.getAbsolutePath();
+		// the root already ends with the separator
+		String separator = directory.endsWith("/") ? "" : "/";
+
+		return new Ext2File(volume, inodeNumber, directory + separator + getName());
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
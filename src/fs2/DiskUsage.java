@@ -0,0 +1,355 @@
+package fs2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The disk usage of a directory tree: the totals of the whole tree and the
+ * biggest files and directories in it. Sizes are counted the way du counts
+ * them, by the blocks allocated to the inodes rather than by their lengths, and
+ * a file with several hard links is counted once
+ * 
+ * @author Georgi Valchanov
+ */
+public class DiskUsage {
+
+	/**
+	 * Orders the entries from the smallest to the biggest allocation
+	 */
+	private static final Comparator<Entry> byAllocation = Comparator.comparingLong(Entry::allocated);
+
+	private final Entry total;
+	private final List<Entry> topFiles;
+	private final List<Entry> topDirectories;
+
+	private DiskUsage(Entry total, List<Entry> topFiles, List<Entry> topDirectories) {
+		this.total = total;
+		this.topFiles = topFiles;
+		this.topDirectories = topDirectories;
+	}
+
+	/**
+	 * Computes the disk usage of a directory tree. Every subdirectory is read by
+	 * its own task on a {@link ForkJoinPool}
+	 * 
+	 * @param directory
+	 *          where the tree starts
+	 * @param top
+	 *          number of the biggest files and directories that are reported
+	 * @param parallelism
+	 *          number of worker threads
+	 * @return the disk usage of the tree
+	 */
+	static DiskUsage of(Ext2File directory, int top, int parallelism) {
+		if (!directory.isDirectory())
+			throw new IllegalArgumentException(directory.getAbsolutePath() + " is not a directory");
+		if (top < 0)
+			throw new IllegalArgumentException("negative top: " + top);
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+
+		Set<Integer> linked = ConcurrentHashMap.newKeySet();
+		Node root = new Node(null, directory.getAbsolutePath());
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		Totals totals;
+		try {
+			totals = pool.invoke(new Task(directory, root, top, linked));
+		} finally {
+			pool.shutdown();
+		}
+
+		return new DiskUsage(totals.toEntry(root.path()), sorted(totals.topFiles), sorted(totals.topDirectories));
+	}
+
+	/**
+	 * Returns the totals of the whole tree
+	 * 
+	 * @return the totals of the whole tree
+	 */
+	public Entry total() {
+		return total;
+	}
+
+	/**
+	 * Returns the biggest files of the tree, the biggest first
+	 * 
+	 * @return the biggest files of the tree
+	 */
+	public List<Entry> topFiles() {
+		return topFiles;
+	}
+
+	/**
+	 * Returns the directories with the biggest trees, the biggest first. The
+	 * directory where the tree starts is not included
+	 * 
+	 * @return the biggest directories of the tree
+	 */
+	public List<Entry> topDirectories() {
+		return topDirectories;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(total.toString());
+
+		builder.append("\nbiggest files:");
+		for (Entry entry : topFiles) {
+			builder.append("\n  ").append(entry);
+		}
+		builder.append("\nbiggest directories:");
+		for (Entry entry : topDirectories) {
+			builder.append("\n  ").append(entry);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Empties a queue into a list, the biggest entry first
+	 * 
+	 * @param queue
+	 *          of entries
+	 * @return the list of the entries
+	 */
+	private static List<Entry> sorted(PriorityQueue<Entry> queue) {
+		List<Entry> entries = new ArrayList<>(queue);
+		entries.sort(byAllocation.reversed());
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Adds an entry to a queue holding the {@code top} biggest entries
+	 * 
+	 * @param queue
+	 *          of the biggest entries, the smallest at the head
+	 * @param entry
+	 *          to be added
+	 * @param top
+	 *          maximum number of entries in the queue
+	 */
+	private static void offer(PriorityQueue<Entry> queue, Entry entry, int top) {
+		if (queue.size() < top) {
+			queue.add(entry);
+		}
+		else if (top > 0 && queue.peek().allocated < entry.allocated) {
+			queue.poll();
+			queue.add(entry);
+		}
+	}
+
+	/**
+	 * Tests whether an allocation would make it into a queue holding the
+	 * {@code top} biggest entries, so the path of a small file is never built
+	 * 
+	 * @param queue
+	 *          of the biggest entries, the smallest at the head
+	 * @param allocated
+	 *          number of allocated bytes
+	 * @param top
+	 *          maximum number of entries in the queue
+	 * @return true if the allocation would be added
+	 */
+	private static boolean fits(PriorityQueue<Entry> queue, long allocated, int top) {
+		return queue.size() < top || (top > 0 && queue.peek().allocated < allocated);
+	}
+
+	/**
+	 * The usage of a file or a directory tree
+	 */
+	public static class Entry {
+		private final String path;
+		private final long size;
+		private final long allocated;
+		private final long files;
+		private final long directories;
+
+		Entry(String path, long size, long allocated, long files, long directories) {
+			this.path = path;
+			this.size = size;
+			this.allocated = allocated;
+			this.files = files;
+			this.directories = directories;
+		}
+
+		/**
+		 * Returns the absolute path of the file or directory in the volume
+		 * 
+		 * @return the absolute path
+		 */
+		public String path() {
+			return path;
+		}
+
+		/**
+		 * Returns the sum of the lengths of the files
+		 * 
+		 * @return the sum of the lengths in bytes
+		 */
+		public long size() {
+			return size;
+		}
+
+		/**
+		 * Returns the number of bytes allocated to the files, including their
+		 * indirect blocks. It is smaller than the size for sparse files
+		 * 
+		 * @return the number of allocated bytes
+		 */
+		public long allocated() {
+			return allocated;
+		}
+
+		/**
+		 * Returns the number of files which are not directories
+		 * 
+		 * @return the number of files
+		 */
+		public long files() {
+			return files;
+		}
+
+		/**
+		 * Returns the number of directories, including the directory itself
+		 * 
+		 * @return the number of directories
+		 */
+		public long directories() {
+			return directories;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d allocated, %d bytes, %d files, %d directories %s", allocated, size, files,
+					directories, path);
+		}
+	}
+
+	/**
+	 * A directory of the tree. Only the names are kept, the paths are built for
+	 * the reported entries alone
+	 */
+	private static class Node {
+		final Node parent;
+		final String name;
+
+		Node(Node parent, String name) {
+			this.parent = parent;
+			this.name = name;
+		}
+
+		String path() {
+			if (parent == null)
+				return name;
+
+			String directory = parent.path();
+			// the root already ends with the separator
+			return directory + (directory.endsWith("/") ? "" : "/") + name;
+		}
+
+		String path(String child) {
+			String directory = path();
+			return directory + (directory.endsWith("/") ? "" : "/") + child;
+		}
+	}
+
+	/**
+	 * The sums of a directory tree and its biggest files and subdirectories
+	 */
+	private static class Totals {
+		long size;
+		long allocated;
+		long files;
+		long directories = 1;
+		final PriorityQueue<Entry> topFiles = new PriorityQueue<>(byAllocation);
+		final PriorityQueue<Entry> topDirectories = new PriorityQueue<>(byAllocation);
+
+		Entry toEntry(String path) {
+			return new Entry(path, size, allocated, files, directories);
+		}
+	}
+
+	/**
+	 * Sums a directory and forks a task for every subdirectory
+	 */
+	private static class Task extends RecursiveTask<Totals> {
+		private static final long serialVersionUID = 1L;
+
+		private final Ext2File directory;
+		private final Node node;
+		private final int top;
+		private final Set<Integer> linked;
+
+		Task(Ext2File directory, Node node, int top, Set<Integer> linked) {
+			this.directory = directory;
+			this.node = node;
+			this.top = top;
+			this.linked = linked;
+		}
+
+		@Override
+		protected Totals compute() {
+			Volume volume = directory.getVolume();
+			InodeView view = new InodeView(volume, directory.getInode().getNumber());
+			Totals totals = new Totals();
+			List<Task> tasks = new ArrayList<>();
+
+			totals.size = view.getSize();
+			totals.allocated = view.getSectors() * 512;
+
+			for (DirEntry entry : directory.newDirectoryStream()) {
+				entry.viewInode(view);
+
+				if (view.isDirectory()) {
+					Node child = new Node(node, entry.getName());
+					// the directory is only used to stream its entries, so its full path is
+					// not built
+					Task task = new Task(new Ext2File(volume, view.getNumber(), child.name), child, top, linked);
+					task.fork();
+					tasks.add(task);
+					continue;
+				}
+
+				// a file with several links is counted by the first link that is found
+				if (view.getLinksCount() > 1 && !linked.add(view.getNumber()))
+					continue;
+
+				long allocated = view.getSectors() * 512;
+				totals.size += view.getSize();
+				totals.allocated += allocated;
+				totals.files++;
+
+				if (fits(totals.topFiles, allocated, top))
+					offer(totals.topFiles, new Entry(node.path(entry.getName()), view.getSize(), allocated, 1, 0), top);
+			}
+
+			for (Task task : tasks) {
+				Totals sub = task.join();
+
+				totals.size += sub.size;
+				totals.allocated += sub.allocated;
+				totals.files += sub.files;
+				totals.directories += sub.directories;
+
+				for (Entry entry : sub.topFiles) {
+					offer(totals.topFiles, entry, top);
+				}
+				for (Entry entry : sub.topDirectories) {
+					offer(totals.topDirectories, entry, top);
+				}
+				if (fits(totals.topDirectories, sub.allocated, top))
+					offer(totals.topDirectories, sub.toEntry(task.node.path()), top);
+			}
+
+			return totals;
+		}
+	}
+}
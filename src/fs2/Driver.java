@@ -5,8 +5,8 @@ import java.io.IOException;
 public class Driver {
 
 	public static void main(String[] args) {
-		try {
-			Volume.initVolume("ext2fs");
+		try (Volume vol = new Volume("ext2fs")) {
+			Volume.traverse(vol.getRoot(), 0);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,159 @@
+package fs2;
+
+import java.nio.file.DirectoryStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the entries of a directory one block at a time. Only the block which
+ * is currently walked is touched and no list of the entries is built
+ * 
+ * @author Georgi Valchanov
+ */
+public class Ext2DirectoryStream implements DirectoryStream<DirEntry> {
+
+	private final Volume volume;
+	private final Ext2File directory;
+	private final Ext2FilenameFilter filter;
+	/**
+	 * Whether the "." and ".." entries are given
+	 */
+	private final boolean includeDots;
+
+	private boolean iteratorGiven;
+	private boolean closed;
+
+	/**
+	 * Creates a new stream
+	 * 
+	 * @param directory
+	 *          - the directory to be streamed
+	 * @param filter
+	 *          - a file filter(can be null)
+	 * @param includeDots
+	 *          - whether the "." and ".." entries are given
+	 */
+	Ext2DirectoryStream(Ext2File directory, Ext2FilenameFilter filter, boolean includeDots) {
+		this.volume = directory.getVolume();
+		this.directory = directory;
+		this.filter = filter;
+		this.includeDots = includeDots;
+	}
+
+	@Override
+	public Iterator<DirEntry> iterator() {
+		if (closed)
+			throw new IllegalStateException("the directory stream is closed");
+		if (iteratorGiven)
+			throw new IllegalStateException("the iterator was already given");
+
+		iteratorGiven = true;
+		return new EntryIterator();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	/**
+	 * Walks the entries block by block
+	 */
+	private class EntryIterator implements Iterator<DirEntry> {
+
+		/**
+		 * Logical number of the block which is walked
+		 */
+		private long block = -1;
+		/**
+		 * Size of a block in bytes
+		 */
+		private final int blockSize = volume.getBlockSize();
+		/**
+		 * Number of blocks in the directory
+		 */
+		private final long blocks = (directory.size() + blockSize - 1) / blockSize;
+		/**
+		 * Offset of the block which is walked in the volume
+		 */
+		private long blockStart;
+		/**
+		 * Offset of the next entry from the start of the block
+		 */
+		private int inBlock = blockSize;
+
+		private DirEntry next;
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !closed)
+				next = advance();
+
+			return next != null;
+		}
+
+		@Override
+		public DirEntry next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			DirEntry entry = next;
+			next = null;
+			return entry;
+		}
+
+		/**
+		 * Finds the next entry which is accepted
+		 * 
+		 * @return the next entry </br>
+		 *         null - if there are no more entries
+		 */
+		private DirEntry advance() {
+			while (true) {
+				if (inBlock >= blockSize && !nextBlock())
+					return null;
+
+				long offset = blockStart + inBlock;
+				int length = volume.getShortAt(offset + DirEntry.rec_len) & 0xffff;
+
+				// a broken entry would loop forever, so the rest of the block is skipped
+				inBlock = length < 8 ? blockSize : inBlock + length;
+
+				// unused entries have inode 0
+				if (volume.getIntAt(offset + DirEntry.inode_number) == 0)
+					continue;
+
+				DirEntry entry = new DirEntry(volume, directory, offset);
+
+				if (!includeDots && (entry.nameEquals(".") || entry.nameEquals("..")))
+					continue;
+				if (filter != null && !filter.accept(entry.getName()))
+					continue;
+
+				return entry;
+			}
+		}
+
+		/**
+		 * Moves to the next block of the directory that is not a hole
+		 * 
+		 * @return false if there are no more blocks
+		 */
+		private boolean nextBlock() {
+			while (++block < blocks) {
+				long physical = directory.physicalBlock(block);
+
+				if (physical != 0) {
+					VolumeCounters counters = volume.counters();
+					if (counters != null)
+						counters.directoryBlocks.increment();
+
+					blockStart = physical * blockSize;
+					inBlock = 0;
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
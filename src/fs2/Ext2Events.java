@@ -0,0 +1,196 @@
+package fs2;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events of the volume I/O. The code of the volume only
+ * passes plain values and gets back an opaque event, so the JFR classes are
+ * never loaded on a runtime without them. When no recording asks for an event
+ * nothing is allocated.
+ * 
+ * @author Georgi Valchanov
+ */
+final class Ext2Events {
+
+	/**
+	 * Whether the runtime has JDK Flight Recorder
+	 */
+	private static final boolean available = hasFlightRecorder();
+
+	private Ext2Events() {
+	}
+
+	/**
+	 * Starts a {@link Volume#getFile(String)} event
+	 * 
+	 * @return the started event, or null if it is not recorded
+	 */
+	static Object beginGetFile() {
+		return available ? Recorder.beginGetFile() : null;
+	}
+
+	/**
+	 * Ends a {@link Volume#getFile(String)} event
+	 * 
+	 * @param event
+	 *          returned by {@link #beginGetFile()}
+	 * @param path
+	 *          that was looked up
+	 * @param inode
+	 *          number of the found inode(0 if the file was not found)
+	 */
+	static void endGetFile(Object event, String path, int inode) {
+		if (event != null)
+			Recorder.endGetFile(event, path, inode);
+	}
+
+	/**
+	 * Starts an {@link Inode#getBlockPointers()} event
+	 * 
+	 * @return the started event, or null if it is not recorded
+	 */
+	static Object beginBlockPointers() {
+		return available ? Recorder.beginBlockPointers() : null;
+	}
+
+	/**
+	 * Ends an {@link Inode#getBlockPointers()} event
+	 * 
+	 * @param event
+	 *          returned by {@link #beginBlockPointers()}
+	 * @param inode
+	 *          number of the inode
+	 * @param map
+	 *          the built map
+	 */
+	static void endBlockPointers(Object event, int inode, ExtentMap map) {
+		if (event != null)
+			Recorder.endBlockPointers(event, inode, map.blocks(), map.runs());
+	}
+
+	/**
+	 * Starts an {@link Ext2File#read(long, java.nio.ByteBuffer)} event
+	 * 
+	 * @return the started event, or null if it is not recorded
+	 */
+	static Object beginRead() {
+		return available ? Recorder.beginRead() : null;
+	}
+
+	/**
+	 * Ends an {@link Ext2File#read(long, java.nio.ByteBuffer)} event
+	 * 
+	 * @param event
+	 *          returned by {@link #beginRead()}
+	 * @param path
+	 *          of the read file
+	 * @param offset
+	 *          where the read started
+	 * @param bytes
+	 *          number of bytes read
+	 */
+	static void endRead(Object event, String path, long offset, long bytes) {
+		if (event != null)
+			Recorder.endRead(event, path, offset, bytes);
+	}
+
+	private static boolean hasFlightRecorder() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Touches the JFR classes. It is only loaded when they are available
+	 */
+	private static final class Recorder {
+		static final EventType getFile = EventType.getEventType(GetFileEvent.class);
+		static final EventType blockPointers = EventType.getEventType(BlockPointersEvent.class);
+		static final EventType read = EventType.getEventType(ReadEvent.class);
+
+		static Object beginGetFile() {
+			return getFile.isEnabled() ? begin(new GetFileEvent()) : null;
+		}
+
+		static Object beginBlockPointers() {
+			return blockPointers.isEnabled() ? begin(new BlockPointersEvent()) : null;
+		}
+
+		static Object beginRead() {
+			return read.isEnabled() ? begin(new ReadEvent()) : null;
+		}
+
+		private static Event begin(Event event) {
+			event.begin();
+			return event;
+		}
+
+		static void endGetFile(Object event, String path, int inode) {
+			GetFileEvent e = (GetFileEvent) event;
+			e.path = path;
+			e.inode = inode;
+			e.commit();
+		}
+
+		static void endBlockPointers(Object event, int inode, long blocks, int runs) {
+			BlockPointersEvent e = (BlockPointersEvent) event;
+			e.inode = inode;
+			e.blocks = blocks;
+			e.runs = runs;
+			e.commit();
+		}
+
+		static void endRead(Object event, String path, long offset, long bytes) {
+			ReadEvent e = (ReadEvent) event;
+			e.path = path;
+			e.offset = offset;
+			e.bytes = bytes;
+			e.commit();
+		}
+	}
+
+	@Name("fs2.GetFile")
+	@Label("Get File")
+	@Category("ext2")
+	@Description("Resolution of an absolute path")
+	static class GetFileEvent extends Event {
+		@Label("Path")
+		String path;
+		@Label("Inode")
+		int inode;
+	}
+
+	@Name("fs2.BlockPointers")
+	@Label("Block Pointers")
+	@Category("ext2")
+	@Description("Building the block map of an inode from its direct and indirect pointers")
+	static class BlockPointersEvent extends Event {
+		@Label("Inode")
+		int inode;
+		@Label("Blocks")
+		long blocks;
+		@Label("Runs")
+		int runs;
+	}
+
+	@Name("fs2.Read")
+	@Label("Read")
+	@Category("ext2")
+	@Description("A read of the contents of a file")
+	static class ReadEvent extends Event {
+		@Label("Path")
+		String path;
+		@Label("Offset")
+		long offset;
+		@Label("Bytes")
+		long bytes;
+	}
+}
@@ -2,17 +2,39 @@ package fs2;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
-import java.util.Iterator;
-
-import util.Utils;
 
 public class Ext2File {
 
+	/**
+	 * Zeros which are written for the holes of a file
+	 */
+	private static final ByteBuffer zeros = ByteBuffer.allocateDirect(64 * 1024).asReadOnlyBuffer();
+
+	/**
+	 * Size of the read ahead buffer of the streams of a file
+	 */
+	public static final int defaultStreamBufferSize = 64 * 1024;
+	/**
+	 * Largest read ahead window of sequential reads through the mark
+	 */
+	private static final int maxReadAhead = 4 * 1024 * 1024;
+
 	private Volume volume;
-	private Inode inode;
+	/**
+	 * The inode of the file. It is read on first use when the file was created
+	 * from a directory entry
+	 */
+	private volatile Inode inode;
+	/**
+	 * Number of the inode of the file
+	 */
+	private int inodeNumber;
 
 	/**
 	 * Hold the absolute path of the file
@@ -26,12 +48,33 @@ public class Ext2File {
 	 * Holds the of the next byte to be read(used as a bookmark)
 	 */
 	private long possition;
+	/**
+	 * Where the last read through the mark ended(-1 before the first read)
+	 */
+	private long lastEnd = -1;
+	/**
+	 * Size of the read ahead window. It is 0 while the reads through the mark are
+	 * not sequential, and it doubles with every sequential read
+	 */
+	private int window;
+	/**
+	 * Bytes of the file read ahead of the mark
+	 */
+	private ByteBuffer readAhead;
+	/**
+	 * Offset in the file of the first byte of {@link #readAhead}
+	 */
+	private long readAheadStart;
 
 	/**
-	 * Holds the numbers of the blocks in the volume that hold the contents of the
-	 * file
+	 * Maps the blocks of the file to the blocks in the volume that hold the
+	 * contents of the file
+	 */
+	private volatile ExtentMap blocks;
+	/**
+	 * Maps single blocks of the file on demand while {@link #blocks} is not read
 	 */
-	private Integer[] blocks;
+	private volatile BlockMapper mapper;
 
 	/**
 	 * Creates a new Ext2File object
@@ -47,9 +90,8 @@ public class Ext2File {
 		volume = vol;
 		fullname = name;
 		nameIndex = name.lastIndexOf('/');
-		inode = getParent().getFileInode(getName());
-		if (inode == null)
-			throw new FileNotFoundException();
+		inode = vol.resolve(name);
+		inodeNumber = inode.getNumber();
 	}
 
 	/**
@@ -65,6 +107,24 @@ public class Ext2File {
 	Ext2File(Volume vol, Inode inode, String name) {
 		volume = vol;
 		this.inode = inode;
+		inodeNumber = inode.getNumber();
+		fullname = name;
+		nameIndex = name.lastIndexOf('/');
+	}
+
+	/**
+	 * Creates a new file whose inode is read on first use
+	 * 
+	 * @param vol
+	 *          - the volume where the file is expected to be
+	 * @param inodeNumber
+	 *          - number of the inode of the file
+	 * @param name
+	 *          - of the file
+	 */
+	Ext2File(Volume vol, int inodeNumber, String name) {
+		volume = vol;
+		this.inodeNumber = inodeNumber;
 		fullname = name;
 		nameIndex = name.lastIndexOf('/');
 	}
@@ -106,7 +166,7 @@ public class Ext2File {
 	 * @return the size of the file in bytes
 	 */
 	public long size() {
-		return inode.getI_size();
+		return getInode().getI_size();
 	}
 
 	/**
@@ -115,7 +175,16 @@ public class Ext2File {
 	 * @return true if the file is a directory
 	 */
 	public boolean isDirectory() {
-		return (inode.getI_mode() & 0x4000) != 0 ? true : false;
+		return (getInode().getI_mode() & 0xF000) == 0x4000;
+	}
+
+	/**
+	 * Tests whether the file is a regular file.
+	 * 
+	 * @return true if the file is a regular file
+	 */
+	public boolean isFile() {
+		return (getInode().getI_mode() & 0xF000) == 0x8000;
 	}
 
 	/**
@@ -142,43 +211,76 @@ public class Ext2File {
 	 */
 	public Ext2File[] listExt2Files(Ext2FilenameFilter filter) {
 		if (isDirectory()) {
-			ArrayList<InodeandName> i_n = getInodes_and_Names(filter);
-			Ext2File[] subfiles = new Ext2File[i_n.size() - 2];
-
-			// starts from second to pass self and parent references
-			for (int i = 2; i < i_n.size(); i++) {
-				InodeandName entry = i_n.get(i);
+			ArrayList<Ext2File> subfiles = new ArrayList<>();
 
-				subfiles[i - 2] = new Ext2File(volume, volume.getInode(entry.inode), fullname + "/" + entry.name);
+			// the inodes of the subfiles are only read when they are used
+			for (DirEntry entry : newDirectoryStream(filter)) {
+				subfiles.add(entry.toExt2File());
 			}
 
-			return subfiles;
+			return subfiles.toArray(new Ext2File[subfiles.size()]);
 		}
 		return null;
 	}
 
+	/**
+	 * Returns a stream over the entries of this directory(if this file is a
+	 * directory). The directory is read one block at a time while the stream is
+	 * iterated. The "." and ".." entries are not given
+	 * 
+	 * @return a stream over the entries of this directory if this is a directory
+	 *         </br>
+	 *         null - otherwise
+	 */
+	public Ext2DirectoryStream newDirectoryStream() {
+		return newDirectoryStream(null);
+	}
+
+	/**
+	 * Returns a stream over the entries of this directory(if this file is a
+	 * directory) accepted by the filter. The "." and ".." entries are not given
+	 * 
+	 * @param filter
+	 *          - A file filter
+	 * @return a stream over the entries of this directory if this is a directory
+	 *         </br>
+	 *         null - otherwise
+	 */
+	public Ext2DirectoryStream newDirectoryStream(Ext2FilenameFilter filter) {
+		if (isDirectory())
+			return new Ext2DirectoryStream(this, filter, false);
+
+		return null;
+	}
+
 	/**
 	 * Prints out the contents of this directory in Unix like format
 	 */
 	public void ls() {
 		if (isDirectory()) {
-			ArrayList<InodeandName> i_n = getInodes_and_Names(null);
+			// one view is moved over the inodes of all the entries
+			InodeView view = new InodeView(volume);
 
-			for (Iterator<InodeandName> iterator = i_n.iterator(); iterator.hasNext();) {
-				InodeandName entry = iterator.next();
-
-				System.out.println(volume.getInode(entry.inode).fileInfo(entry.name));
+			for (DirEntry entry : new Ext2DirectoryStream(this, null, true)) {
+				System.out.println(entry.viewInode(view).fileInfo(entry.getName()));
 			}
 		}
 	}
 
 	/**
-	 * Initializes the contents of a file
+	 * Returns the map of the blocks that hold the contents of this file. It is
+	 * read from the inode on first use. Threads racing on the first use compute
+	 * the same map so no locking is needed
+	 * 
+	 * @return the map of the blocks that hold the contents of this file
 	 */
-	private void initFileContents() {
-		// this holds the numbers of all the blocks that hold contents of this file
-		blocks = inode.getBlockPointers();
-		possition = 0;
+	private ExtentMap blocks() {
+		ExtentMap pointers = blocks;
+		if (pointers == null) {
+			pointers = getInode().getBlockPointers();
+			blocks = pointers;
+		}
+		return pointers;
 	}
 
 	/**
@@ -195,10 +297,7 @@ public class Ext2File {
 	 * @return Returns an array of data from this file
 	 */
 	public byte[] read(long startByte, int length) {
-		if (blocks == null)
-			initFileContents();
-
-		if (startByte == size()) {// for reading from past end
+		if (startByte >= size()) {// for reading from past end
 			return null;
 		}
 		else if (startByte + length > size()) {// getting only available bytes
@@ -207,44 +306,349 @@ public class Ext2File {
 
 		// hold the read bytes
 		byte[] temp = new byte[length];
+		read(startByte, ByteBuffer.wrap(temp));
+
+		return temp;
+	}
 
-		// index for temp
+	/**
+	 * Reads a sequence of bytes from this file into {@code dst}, starting at
+	 * {@code startByte}. The mark of this file is neither used nor changed, so
+	 * several threads can read the same file at the same time.<br>
+	 * The method reads until {@code dst} is full or the end of the file is
+	 * reached.
+	 * 
+	 * @param startByte
+	 *          - the start from where the data will be read
+	 * @param dst
+	 *          - the buffer into which the bytes are transferred
+	 * @return the number of bytes read, or -1 if {@code startByte} is at or past
+	 *         the end of the file
+	 * @throws IllegalArgumentException
+	 *           if {@code startByte} is negative
+	 */
+	public int read(long startByte, ByteBuffer dst) {
+		if (startByte < 0) {
+			throw new IllegalArgumentException("negative start byte: " + startByte);
+		}
+		else if (startByte >= size()) {
+			return -1;
+		}
+
+		Object event = Ext2Events.beginRead();
+		long start = startByte;
+		int length = (int) Math.min(dst.remaining(), size() - startByte);
+		int blockSize = volume.getBlockSize();
+		// number of blocks copied out of the image
+		long copied = 0;
+
+		// index for the read bytes
 		int i = 0;
 		while (i < length) {
-			// get the number of the block(the number is that index in the blocks array)
-			int blockNumber = (int) (startByte / Volume.blockSize);
+			// get the index of the block in the file
+			long blockNumber = startByte / blockSize;
+			long physical = physicalBlock(blockNumber);
 
 			// get the offset from the start of the block
-			int startInBlock = (int) (startByte % Volume.blockSize);
+			int startInBlock = (int) (startByte % blockSize);
 
 			// get the number of bytes you're going to copy from that block
 			// it can be: until the end of the block; just a chunk in it of size length
-			int copyLength = Math.min(Volume.blockSize - startInBlock, length - i);
+			int copyLength = Math.min(blockSize - startInBlock, length - i);
+
+			if (physical != 0) {
+				// blocks which follow each other in the volume are copied at once
+				long blocks = contiguousBlocks(blockNumber, physical, (startInBlock + length - i - 1) / blockSize + 1);
+				copyLength = (int) Math.min(blocks * blockSize - startInBlock, length - i);
+
+				volume.copy(physical * blockSize + startInBlock, dst, copyLength);
+				copied += (startInBlock + copyLength - 1) / blockSize + 1;
+			}
+			else {
+				// the rest of the hole is filled at once instead of block by block
+				long holeEnd = holeEnd(blockNumber, (startByte + length - i - 1) / blockSize + 1);
 
-			// use the fact that java initializes the temp array with zeros and just skip
-			// over this when the user asks to read from a hole
-			if (blocks[blockNumber] != 0)
-				volume.copy(blocks[blockNumber], startInBlock, temp, i, copyLength);
+				copyLength = (int) Math.min(holeEnd * blockSize - startByte, length - i);
+				fillHoles(dst, copyLength);
+			}
 
-			// forwards the index of temp
+			// forwards the index of the read bytes
 			i += copyLength;
 			// forward the start byte variable so that in the next iteration of the loop you
 			// can read from a different block (if needed)
 			startByte += copyLength;
 		}
-		return temp;
+		count(length, copied);
+		Ext2Events.endRead(event, fullname, start, length);
+		return length;
+	}
+
+	/**
+	 * Transfers bytes of this file straight to a channel. Runs of blocks which are
+	 * consecutive in the volume are transferred in one go from the image to the
+	 * channel, without an intermediate copy in the Java heap. Holes are written as
+	 * zeros. The mark of this file is neither used nor changed.
+	 * 
+	 * @param startByte
+	 *          - the start from where the data will be read
+	 * @param count
+	 *          - maximum number of bytes to transfer
+	 * @param target
+	 *          - the channel where the bytes are written
+	 * @return the number of bytes transferred(0 if {@code startByte} is at or past
+	 *         the end of the file)
+	 * @throws IOException
+	 *           if the target cannot be written
+	 * @throws IllegalArgumentException
+	 *           if {@code startByte} is negative
+	 */
+	public long transferTo(long startByte, long count, WritableByteChannel target) throws IOException {
+		if (startByte < 0)
+			throw new IllegalArgumentException("negative start byte: " + startByte);
+		if (startByte >= size() || count <= 0)
+			return 0;
+
+		ExtentMap map = blocks();
+		int blockSize = volume.getBlockSize();
+		long end = Math.min(size(), startByte + count);
+		long position = startByte;
+		// number of blocks copied out of the image
+		long copied = 0;
+
+		for (int run = map.find(position / blockSize); run >= 0 && run < map.runs() && position < end; run++) {
+			// bytes of the file covered by the run
+			long runStart = map.logicalStart(run) * blockSize;
+			long runEnd = Math.min(end, runStart + (long) map.length(run) * blockSize);
+			long length = runEnd - position;
+
+			if (map.physicalStart(run) != 0) {
+				long offset = map.physicalStart(run) * blockSize + (position - runStart);
+				volume.transferTo(offset, length, target);
+				copied += (offset % blockSize + length - 1) / blockSize + 1;
+			}
+			else {
+				writeZeros(length, target);
+			}
+
+			position = runEnd;
+		}
+
+		// the map of a corrupt inode can cover fewer blocks than its size, the rest
+		// is read as a hole
+		if (position < end)
+			writeZeros(end - position, target);
+
+		count(end - startByte, copied);
+		return end - startByte;
+	}
+
+	/**
+	 * Adds a read to the counters of the volume, if they are enabled
+	 * 
+	 * @param bytes
+	 *          - number of bytes read
+	 * @param blocks
+	 *          - number of blocks copied out of the image
+	 */
+	private void count(long bytes, long blocks) {
+		VolumeCounters counters = volume.counters();
+		if (counters != null) {
+			counters.bytesRead.add(bytes);
+			counters.blocksCopied.add(blocks);
+		}
+	}
+
+	/**
+	 * Returns the offset of the first byte at or after {@code startByte} which is
+	 * held by a block of the volume, like {@code SEEK_DATA} of lseek. Holes are
+	 * skipped a whole run at a time, without reading the image
+	 * 
+	 * @param startByte
+	 *          - where the search starts
+	 * @return the offset of the next data </br>
+	 *         -1 - if there is only a hole from {@code startByte} to the end of the
+	 *         file, or {@code startByte} is at or past the end of the file
+	 * @throws IllegalArgumentException
+	 *           if {@code startByte} is negative
+	 */
+	public long seekData(long startByte) {
+		if (startByte < 0)
+			throw new IllegalArgumentException("negative start byte: " + startByte);
+		if (startByte >= size())
+			return -1;
+
+		ExtentMap map = blocks();
+		int blockSize = volume.getBlockSize();
+
+		for (int run = map.find(startByte / blockSize); run >= 0 && run < map.runs(); run++) {
+			if (map.physicalStart(run) != 0)
+				return Math.max(startByte, map.logicalStart(run) * blockSize);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the offset of the first byte at or after {@code startByte} which is
+	 * in a hole, like {@code SEEK_HOLE} of lseek. The end of the file counts as a
+	 * hole
+	 * 
+	 * @param startByte
+	 *          - where the search starts
+	 * @return the offset of the next hole, or the size of the file if there are no
+	 *         more holes </br>
+	 *         -1 - if {@code startByte} is at or past the end of the file
+	 * @throws IllegalArgumentException
+	 *           if {@code startByte} is negative
+	 */
+	public long seekHole(long startByte) {
+		if (startByte < 0)
+			throw new IllegalArgumentException("negative start byte: " + startByte);
+		if (startByte >= size())
+			return -1;
+
+		ExtentMap map = blocks();
+		int blockSize = volume.getBlockSize();
+
+		for (int run = map.find(startByte / blockSize); run >= 0 && run < map.runs(); run++) {
+			if (map.physicalStart(run) == 0)
+				return Math.min(size(), Math.max(startByte, map.logicalStart(run) * blockSize));
+		}
+
+		return size();
 	}
 
 	/**
-	 * Returns an array of data from this file. Starting from the mark in this file
+	 * Writes the contents of this file to the start of a file channel, leaving the
+	 * holes of this file as holes of the target. Only the data is transferred: the
+	 * target is positioned past every hole. When this file ends with a hole its
+	 * last byte is written, so the target gets the full size.
+	 * 
+	 * @param target
+	 *          - the channel where the file is written
+	 * @return the number of bytes of data transferred
+	 * @throws IOException
+	 *           if the target cannot be written
+	 */
+	public long transferSparseTo(FileChannel target) throws IOException {
+		long transferred = 0;
+		long data = size() > 0 ? seekData(0) : -1;
+
+		while (data >= 0) {
+			long hole = seekHole(data);
+
+			target.position(data);
+			transferred += transferTo(data, hole - data, target);
+			data = hole < size() ? seekData(hole) : -1;
+		}
+
+		if (size() > 0 && target.size() < size()) {
+			// only the last byte is written, the rest stays a hole
+			target.position(size() - 1);
+			transferred += transferTo(size() - 1, 1, target);
+		}
+
+		return transferred;
+	}
+
+	/**
+	 * Fills a buffer with zeros for a hole of this file
+	 * 
+	 * @param dst
+	 *          - the buffer into which the zeros are put
+	 * @param length
+	 *          - number of zeros
+	 */
+	private static void fillHoles(ByteBuffer dst, int length) {
+		ByteBuffer hole = zeros.duplicate();
+
+		while (length > 0) {
+			hole.clear();
+			hole.limit(Math.min(hole.capacity(), length));
+			length -= hole.remaining();
+			dst.put(hole);
+		}
+	}
+
+	/**
+	 * Writes zeros to a channel
+	 * 
+	 * @param length
+	 *          - number of zeros
+	 * @param target
+	 *          - the channel where the zeros are written
+	 * @throws IOException
+	 *           if the target cannot be written
+	 */
+	private static void writeZeros(long length, WritableByteChannel target) throws IOException {
+		ByteBuffer hole = zeros.duplicate();
+
+		while (length > 0) {
+			hole.clear();
+			hole.limit((int) Math.min(hole.capacity(), length));
+			length -= hole.remaining();
+
+			while (hole.hasRemaining()) {
+				target.write(hole);
+			}
+		}
+	}
+
+	/**
+	 * Returns an array of data from this file. Starting from the mark in this
+	 * file.<br>
+	 * The mark belongs to this object, so the method should not be called from
+	 * several threads at once. Use {@link #read(long, ByteBuffer)} instead.
 	 * 
 	 * @param length
 	 *          - number of bytes to read
 	 * @return Returns an array of data from this file
 	 */
 	public byte[] read(int length) throws IOException {
-		byte[] temp = read(possition, length);
-		possition += length;
+		// a read which starts where the last one ended widens the read ahead window,
+		// any other read closes it
+		if (possition == lastEnd)
+			window = window == 0 ? defaultStreamBufferSize : Math.min(window * 2, maxReadAhead);
+		else
+			window = 0;
+
+		byte[] temp = window > length ? readAhead(length) : read(possition, length);
+		// the mark only moves by the bytes that were actually read
+		if (temp != null)
+			possition += temp.length;
+		lastEnd = possition;
+		return temp;
+	}
+
+	/**
+	 * Reads from the mark through the read ahead buffer. The buffer is refilled
+	 * with a whole window when it does not hold the requested bytes
+	 * 
+	 * @param length
+	 *          - number of bytes to read
+	 * @return the read bytes, or null if the mark is at or past the end of the file
+	 */
+	private byte[] readAhead(int length) {
+		if (possition >= size())
+			return null;
+
+		length = (int) Math.min(length, size() - possition);
+
+		if (readAhead == null || possition < readAheadStart || possition + length > readAheadStart + readAhead.limit()) {
+			if (readAhead == null || readAhead.capacity() < window)
+				readAhead = ByteBuffer.allocate(window);
+
+			readAhead.clear();
+			readAhead.limit(window);
+			read(possition, readAhead);
+			readAhead.flip();
+			readAheadStart = possition;
+		}
+
+		byte[] temp = new byte[length];
+		readAhead.position((int) (possition - readAheadStart));
+		readAhead.get(temp);
+
 		return temp;
 	}
 
@@ -257,16 +661,46 @@ public class Ext2File {
 		this.possition = possition;
 	}
 
+	/**
+	 * Opens a read only channel over the contents of this file. The channel has
+	 * its own position and does not use the mark of this file
+	 * 
+	 * @return a new channel over the contents of this file
+	 */
+	public SeekableByteChannel newByteChannel() {
+		return new Ext2FileChannel(this);
+	}
+
+	/**
+	 * Opens a stream over the contents of this file, which reads ahead
+	 * {@link #defaultStreamBufferSize} bytes at a time
+	 * 
+	 * @return a new stream over the contents of this file
+	 */
+	public InputStream newInputStream() {
+		return newInputStream(defaultStreamBufferSize);
+	}
+
+	/**
+	 * Opens a stream over the contents of this file
+	 * 
+	 * @param bufferSize
+	 *          - number of bytes read ahead at a time
+	 * @return a new stream over the contents of this file
+	 */
+	public InputStream newInputStream(int bufferSize) {
+		return new Ext2InputStream(this, bufferSize);
+	}
+
 	/**
 	 * Returns the whole contents of the file
 	 * 
 	 * @return whole contents of the file
 	 */
 	public byte[] fullyRead() {
-		if (blocks == null) {
-			initFileContents();
-		}
-		return read(0, blocks.length * 1024);
+		// the whole file is read, so all of its pointers are read at once
+		blocks();
+		return read(0, (int) size());
 	}
 
 	/**
@@ -280,63 +714,141 @@ public class Ext2File {
 	 */
 	Inode getFileInode(String name) {
 		if (isDirectory()) {
+			int number = volume.lookup(this, name);
 
-			ArrayList<InodeandName> i_n = this.getInodes_and_Names((subfileName) -> {
-				return subfileName.equals(name);
-			});
-
-			// returning the first because there would be only one file with that name
-			if (i_n.size() > 0)
-				return volume.getInode(i_n.get(0).inode);
-
+			if (number != 0)
+				return volume.getInode(number);
 		}
 		return null;
 	}
 
 	/**
-	 * Returns a list with entries mapping inode numbers and names of subfiles
+	 * If this file is a directory it scans it for the file specified in the
+	 * parameter and returns its inode number
 	 * 
-	 * @param filter
-	 *          a file filter
-	 * @return a list with entries mapping inode numbers and names of subfiles
+	 * @param name
+	 *          of the searched file
+	 * @return inode number if the file is found and this is a directory </br>
+	 *         0 - otherwise
 	 */
-	private ArrayList<InodeandName> getInodes_and_Names(Ext2FilenameFilter filter) {
-		ArrayList<InodeandName> subFiles = new ArrayList<>();
+	int findInodeNumber(String name) {
+		if (isDirectory()) {
+			// a hashed directory is searched in the one leaf block that can hold the name
+			if (volume.getSuperBlock().hasDirectoryIndex() && getInode().hasHashedIndex()) {
+				int number = HtreeIndex.lookup(this, name);
+				if (number != HtreeIndex.unusable)
+					return number;
+			}
 
-		ByteBuffer buffer = ByteBuffer.wrap(fullyRead());
-		buffer.order(ByteOrder.LITTLE_ENDIAN);
+			// directories of several blocks get an index of their names in memory
+			if (size() > volume.getBlockSize()) {
+				Integer number = volume.directoryIndex(this).get(name);
+				return number == null ? 0 : number;
+			}
 
-		int offset = 0;
-		while (offset < size()) {
-			int inode = buffer.getInt(offset);
+			for (DirEntry entry : new Ext2DirectoryStream(this, null, true)) {
+				// there would be only one file with that name
+				if (entry.nameEquals(name))
+					return entry.getInodeNumber();
+			}
+		}
+		return 0;
+	}
 
-			int length = buffer.getShort(offset + 4);
-			int namelen = buffer.get(offset + 6);
-			String name = Utils.byteArrayToASCIIString(this.read(offset + 8, namelen));
+	/**
+	 * Returns the inode of this file
+	 * 
+	 * @return the inode of this file
+	 */
+	Inode getInode() {
+		Inode i = inode;
+		if (i == null) {
+			i = volume.getInode(inodeNumber);
+			inode = i;
+		}
+		return i;
+	}
 
-			if (filter == null || filter.accept(name)) {
-				subFiles.add(new InodeandName(inode, name));
-			}
+	/**
+	 * Returns the volume where this file is located
+	 * 
+	 * @return the volume where this file is located
+	 */
+	Volume getVolume() {
+		return volume;
+	}
 
-			offset += length;
+	/**
+	 * Counts the blocks of this file from {@code logical} on which follow each
+	 * other in the volume
+	 * 
+	 * @param logical
+	 *          - index of the first block in the file
+	 * @param physical
+	 *          - number of the first block in the volume
+	 * @param max
+	 *          - most blocks that are counted
+	 * @return the number of consecutive blocks(at least 1)
+	 */
+	private long contiguousBlocks(long logical, long physical, long max) {
+		ExtentMap map = blocks;
+		if (map != null) {
+			int run = map.find(logical);
+			return Math.max(1, Math.min(max, map.logicalStart(run) + map.length(run) - logical));
 		}
 
-		return subFiles;
+		long count = 1;
+		while (count < max && physicalBlock(logical + count) == physical + count) {
+			count++;
+		}
+		return count;
 	}
 
 	/**
-	 * Used to map inodes to file names (a hash map reorders the sequence of
-	 * subfiles)
+	 * Finds where a hole of this file ends. The map of the whole file is only used
+	 * when it is already read, otherwise the blocks after the hole are mapped one
+	 * at a time so a read does not read every indirect block of the file
 	 * 
-	 * @author Georgi Valchanov
+	 * @param logical
+	 *          - index of a block of the hole
+	 * @param limit
+	 *          - index of the block after the last one that is needed
+	 * @return the index of the first block after the hole, at most {@code limit}
 	 */
-	private class InodeandName {
-		int inode;
-		String name;
+	private long holeEnd(long logical, long limit) {
+		ExtentMap map = blocks;
+		if (map != null) {
+			int run = map.find(logical);
+			return run < 0 ? limit : Math.min(limit, map.logicalStart(run) + map.length(run));
+		}
 
-		public InodeandName(int inode, String name) {
-			this.inode = inode;
-			this.name = name;
+		long block = logical + 1;
+		while (block < limit && physicalBlock(block) == 0) {
+			block++;
+		}
+		return block;
+	}
+
+	/**
+	 * Returns the number of the block in the volume that holds a block of this
+	 * file
+	 * 
+	 * @param logical
+	 *          - index of the block in the file
+	 * @return number of the block in the volume </br>
+	 *         0 - if the block is a hole
+	 */
+	long physicalBlock(long logical) {
+		ExtentMap map = blocks;
+		if (map != null)
+			return map.lookup(logical);
+
+		// only the indirect blocks on the way to this block are read
+		BlockMapper m = mapper;
+		if (m == null) {
+			m = new BlockMapper(volume, getInode());
+			mapper = m;
 		}
+		return m.map(logical);
 	}
 }
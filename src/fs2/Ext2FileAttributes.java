@@ -0,0 +1,144 @@
+package fs2;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The basic attributes of a file in an ext2 volume, read from its inode
+ * 
+ * @author Georgi Valchanov
+ */
+class Ext2FileAttributes implements BasicFileAttributes {
+
+	/**
+	 * The names of all the basic attributes
+	 */
+	private static final String[] names = { "lastModifiedTime", "lastAccessTime", "creationTime", "size", "isRegularFile",
+			"isDirectory", "isSymbolicLink", "isOther", "fileKey" };
+
+	/**
+	 * File type bits of the mode
+	 */
+	private static final int typeMask = 0xF000;
+	private static final int typeRegular = 0x8000;
+	private static final int typeDirectory = 0x4000;
+	private static final int typeSymbolicLink = 0xA000;
+
+	private final Inode inode;
+
+	Ext2FileAttributes(Inode inode) {
+		this.inode = inode;
+	}
+
+	@Override
+	public FileTime lastModifiedTime() {
+		return FileTime.fromMillis(inode.getI_mtime().getTime());
+	}
+
+	@Override
+	public FileTime lastAccessTime() {
+		return FileTime.fromMillis(inode.getI_atime().getTime());
+	}
+
+	/**
+	 * ext2 does not record when a file was created, so the last modified time is
+	 * given
+	 */
+	@Override
+	public FileTime creationTime() {
+		return lastModifiedTime();
+	}
+
+	@Override
+	public boolean isRegularFile() {
+		return (inode.getI_mode() & typeMask) == typeRegular;
+	}
+
+	@Override
+	public boolean isDirectory() {
+		return (inode.getI_mode() & typeMask) == typeDirectory;
+	}
+
+	@Override
+	public boolean isSymbolicLink() {
+		return (inode.getI_mode() & typeMask) == typeSymbolicLink;
+	}
+
+	@Override
+	public boolean isOther() {
+		return !isRegularFile() && !isDirectory() && !isSymbolicLink();
+	}
+
+	@Override
+	public long size() {
+		return inode.getI_size();
+	}
+
+	/**
+	 * The inode number identifies a file in its volume
+	 */
+	@Override
+	public Object fileKey() {
+		return inode.getNumber();
+	}
+
+	/**
+	 * Returns the requested attributes by name
+	 * 
+	 * @param attributes
+	 *          comma separated names of the attributes, or "*" for all of them
+	 * @return a map of the names of the attributes to their values
+	 * @throws IllegalArgumentException
+	 *           if an attribute is not a basic attribute
+	 */
+	Map<String, Object> toMap(String attributes) {
+		Map<String, Object> map = new HashMap<>();
+
+		for (String name : attributes.split(",")) {
+			if (name.equals("*")) {
+				for (String all : names) {
+					map.put(all, get(all));
+				}
+			}
+			else {
+				map.put(name, get(name));
+			}
+		}
+
+		return map;
+	}
+
+	/**
+	 * Returns an attribute by name
+	 * 
+	 * @param name
+	 *          of the attribute
+	 * @return the value of the attribute
+	 */
+	private Object get(String name) {
+		switch (name) {
+		case "lastModifiedTime":
+			return lastModifiedTime();
+		case "lastAccessTime":
+			return lastAccessTime();
+		case "creationTime":
+			return creationTime();
+		case "size":
+			return size();
+		case "isRegularFile":
+			return isRegularFile();
+		case "isDirectory":
+			return isDirectory();
+		case "isSymbolicLink":
+			return isSymbolicLink();
+		case "isOther":
+			return isOther();
+		case "fileKey":
+			return fileKey();
+		default:
+			throw new IllegalArgumentException("'" + name + "' is not a basic attribute");
+		}
+	}
+}
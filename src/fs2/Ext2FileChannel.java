@@ -0,0 +1,86 @@
+package fs2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read only {@link SeekableByteChannel} over the contents of an
+ * {@link Ext2File}. It has its own position, so several channels can be opened
+ * on the same file
+ * 
+ * @author Georgi Valchanov
+ */
+class Ext2FileChannel implements SeekableByteChannel {
+
+	private final Ext2File file;
+	/**
+	 * The next byte to be read
+	 */
+	private long position;
+	private boolean open = true;
+
+	Ext2FileChannel(Ext2File file) {
+		this.file = file;
+	}
+
+	@Override
+	public synchronized int read(ByteBuffer dst) throws IOException {
+		ensureOpen();
+
+		int read = file.read(position, dst);
+		if (read > 0)
+			position += read;
+
+		return read;
+	}
+
+	@Override
+	public int write(ByteBuffer src) {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public synchronized long position() throws IOException {
+		ensureOpen();
+		return position;
+	}
+
+	@Override
+	public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+		ensureOpen();
+		if (newPosition < 0)
+			throw new IllegalArgumentException("negative position: " + newPosition);
+
+		position = newPosition;
+		return this;
+	}
+
+	@Override
+	public long size() throws IOException {
+		ensureOpen();
+		return file.size();
+	}
+
+	@Override
+	public SeekableByteChannel truncate(long size) {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public synchronized void close() {
+		open = false;
+	}
+
+	private void ensureOpen() throws ClosedChannelException {
+		if (!open)
+			throw new ClosedChannelException();
+	}
+}
@@ -0,0 +1,281 @@
+package fs2;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.Collections;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A read only {@link FileSystem} over an ext2 image
+ * 
+ * @author Georgi Valchanov
+ */
+class Ext2FileSystem extends FileSystem {
+
+	private final Ext2FileSystemProvider provider;
+	/**
+	 * The image holding the volume
+	 */
+	private final Path image;
+	private final Volume volume;
+	private volatile boolean open = true;
+
+	Ext2FileSystem(Ext2FileSystemProvider provider, Path image) throws IOException {
+		this.provider = provider;
+		this.image = image;
+		volume = new Volume(image.toString());
+	}
+
+	@Override
+	public Ext2FileSystemProvider provider() {
+		return provider;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (open) {
+			open = false;
+			provider.removeFileSystem(this);
+			volume.close();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	@Override
+	public String getSeparator() {
+		return "/";
+	}
+
+	@Override
+	public Iterable<Path> getRootDirectories() {
+		return Collections.<Path> singletonList(new Ext2Path(this, "/"));
+	}
+
+	@Override
+	public Iterable<FileStore> getFileStores() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public Set<String> supportedFileAttributeViews() {
+		return Collections.singleton("basic");
+	}
+
+	@Override
+	public Path getPath(String first, String... more) {
+		StringBuilder path = new StringBuilder(first);
+
+		for (String name : more) {
+			if (name.isEmpty())
+				continue;
+			if (path.length() > 0)
+				path.append('/');
+			path.append(name);
+		}
+
+		return new Ext2Path(this, path.toString());
+	}
+
+	@Override
+	public PathMatcher getPathMatcher(String syntaxAndPattern) {
+		int colon = syntaxAndPattern.indexOf(':');
+		if (colon <= 0)
+			throw new IllegalArgumentException("the syntax is missing: " + syntaxAndPattern);
+
+		String syntax = syntaxAndPattern.substring(0, colon);
+		String pattern = syntaxAndPattern.substring(colon + 1);
+
+		final Pattern regex;
+		if (syntax.equalsIgnoreCase("glob"))
+			regex = Pattern.compile(globToRegex(pattern));
+		else if (syntax.equalsIgnoreCase("regex"))
+			regex = Pattern.compile(pattern);
+		else
+			throw new UnsupportedOperationException("syntax '" + syntax + "' is not supported");
+
+		return (path) -> regex.matcher(path.toString()).matches();
+	}
+
+	@Override
+	public UserPrincipalLookupService getUserPrincipalLookupService() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public WatchService newWatchService() {
+		throw new UnsupportedOperationException("ext2 file systems are read only");
+	}
+
+	/**
+	 * Returns the image holding the volume
+	 * 
+	 * @return the image holding the volume
+	 */
+	Path getImage() {
+		return image;
+	}
+
+	/**
+	 * Returns the volume of this file system
+	 * 
+	 * @return the volume of this file system
+	 */
+	Volume getVolume() {
+		ensureOpen();
+		return volume;
+	}
+
+	/**
+	 * Returns the file a path points to. It is resolved through the caches of the
+	 * volume
+	 * 
+	 * @param path
+	 *          of the file
+	 * @return the file the path points to
+	 * @throws NoSuchFileException
+	 *           if the file does not exist
+	 */
+	Ext2File getFile(Ext2Path path) throws NoSuchFileException {
+		try {
+			return getVolume().getFile(path.toAbsolutePath().toString());
+		} catch (FileNotFoundException e) {
+			throw new NoSuchFileException(path.toString());
+		}
+	}
+
+	/**
+	 * Returns the URI of a file in this file system
+	 * 
+	 * @param absolutePath
+	 *          of the file
+	 * @return the URI of the file
+	 */
+	URI toUri(String absolutePath) {
+		try {
+			return new URI(provider.getScheme() + ":" + image.toUri() + "!" + absolutePath);
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void ensureOpen() {
+		if (!open)
+			throw new ClosedFileSystemException();
+	}
+
+	/**
+	 * Converts a glob into a regular expression. '*' and '?' do not cross
+	 * directory boundaries while '**' does.
+	 * 
+	 * @param glob
+	 *          to be converted
+	 * @return the equivalent regular expression
+	 */
+	static String globToRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		boolean inGroup = false;
+
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+
+			switch (c) {
+			case '\\':
+				if (++i == glob.length())
+					throw new IllegalArgumentException("no character to escape in " + glob);
+				appendLiteral(regex, glob.charAt(i));
+				break;
+			case '*':
+				if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+					regex.append(".*");
+					i++;
+				}
+				else {
+					regex.append("[^/]*");
+				}
+				break;
+			case '?':
+				regex.append("[^/]");
+				break;
+			case '[':
+				// a bracket expression never matches the separator
+				regex.append("[[^/]&&[");
+				if (i + 1 < glob.length() && glob.charAt(i + 1) == '!') {
+					regex.append('^');
+					i++;
+				}
+				while (++i < glob.length() && glob.charAt(i) != ']') {
+					char inner = glob.charAt(i);
+					if (inner == '\\' || inner == '[' || inner == '&' || (inner == '^' && regex.charAt(regex.length() - 1) == '['))
+						regex.append('\\');
+					regex.append(inner);
+				}
+				if (i == glob.length())
+					throw new IllegalArgumentException("missing ']' in " + glob);
+				regex.append("]]");
+				break;
+			case '{':
+				if (inGroup)
+					throw new IllegalArgumentException("nested groups are not supported in " + glob);
+				regex.append("(?:");
+				inGroup = true;
+				break;
+			case '}':
+				if (inGroup) {
+					regex.append(')');
+					inGroup = false;
+				}
+				else {
+					appendLiteral(regex, c);
+				}
+				break;
+			case ',':
+				if (inGroup)
+					regex.append('|');
+				else
+					appendLiteral(regex, c);
+				break;
+			default:
+				appendLiteral(regex, c);
+			}
+		}
+
+		if (inGroup)
+			throw new IllegalArgumentException("missing '}' in " + glob);
+
+		return regex.toString();
+	}
+
+	/**
+	 * Appends a character which is matched literally
+	 * 
+	 * @param regex
+	 *          where the character is appended
+	 * @param c
+	 *          the character
+	 */
+	private static void appendLiteral(StringBuilder regex, char c) {
+		if (".^$+|()[]{}\\*?".indexOf(c) != -1)
+			regex.append('\\');
+		regex.append(c);
+	}
+}
@@ -0,0 +1,395 @@
+package fs2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read only {@link FileSystemProvider} for ext2 images. An image is mounted
+ * with {@code FileSystems.newFileSystem(Paths.get("disk.img"), null)} or with a
+ * URI like {@code ext2:file:///images/disk.img}
+ * 
+ * @author Georgi Valchanov
+ */
+public class Ext2FileSystemProvider extends FileSystemProvider {
+
+	/**
+	 * Offset and value of the magic number of an ext2 super block
+	 */
+	private static final int magicOffset = 1024 + 56;
+	private static final short magic = (short) 0xEF53;
+
+	/**
+	 * The file systems opened through a URI, by the real path of their image
+	 */
+	private final Map<Path, Ext2FileSystem> fileSystems = new HashMap<>();
+
+	@Override
+	public String getScheme() {
+		return "ext2";
+	}
+
+	@Override
+	public FileSystem newFileSystem(URI uri, Map<String, ?> env) throws IOException {
+		Path image = imageOf(uri);
+
+		synchronized (fileSystems) {
+			if (fileSystems.containsKey(image))
+				throw new FileSystemAlreadyExistsException(image.toString());
+
+			Ext2FileSystem fileSystem = open(image);
+			fileSystems.put(image, fileSystem);
+			return fileSystem;
+		}
+	}
+
+	/**
+	 * Opens an image as a new file system. Files which are not ext2 images are
+	 * refused with {@link UnsupportedOperationException}, so other providers can
+	 * be tried
+	 */
+	@Override
+	public FileSystem newFileSystem(Path path, Map<String, ?> env) throws IOException {
+		return open(path.toRealPath());
+	}
+
+	@Override
+	public FileSystem getFileSystem(URI uri) {
+		Path image;
+		try {
+			image = imageOf(uri);
+		} catch (IOException e) {
+			throw new FileSystemNotFoundException(uri.toString());
+		}
+
+		synchronized (fileSystems) {
+			Ext2FileSystem fileSystem = fileSystems.get(image);
+			if (fileSystem == null)
+				throw new FileSystemNotFoundException(uri.toString());
+
+			return fileSystem;
+		}
+	}
+
+	@Override
+	public Path getPath(URI uri) {
+		String spec = uri.getSchemeSpecificPart();
+		int separator = spec.indexOf("!/");
+
+		return getFileSystem(uri).getPath(separator == -1 ? "/" : spec.substring(separator + 1));
+	}
+
+	@Override
+	public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs)
+			throws IOException {
+		checkReadOnly(options);
+
+		Ext2File file = toExt2Path(path).getFileSystem().getFile(toExt2Path(path));
+		if (file.isDirectory())
+			throw new IOException(path + " is a directory");
+
+		return file.newByteChannel();
+	}
+
+	@Override
+	public InputStream newInputStream(Path path, OpenOption... options) throws IOException {
+		for (OpenOption option : options) {
+			if (option == StandardOpenOption.APPEND || option == StandardOpenOption.WRITE)
+				throw new UnsupportedOperationException("'" + option + "' not allowed");
+		}
+
+		Ext2File file = toExt2Path(path).getFileSystem().getFile(toExt2Path(path));
+		if (file.isDirectory())
+			throw new IOException(path + " is a directory");
+
+		return file.newInputStream();
+	}
+
+	/**
+	 * The entries are read from the directory while the stream is iterated
+	 */
+	@Override
+	public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter)
+			throws IOException {
+		Ext2Path directory = toExt2Path(dir);
+		Ext2DirectoryStream entries = directory.getFileSystem().getFile(directory).newDirectoryStream();
+
+		if (entries == null)
+			throw new NotDirectoryException(dir.toString());
+
+		return new PathStream(directory, entries, filter);
+	}
+
+	@Override
+	public void createDirectory(Path dir, FileAttribute<?>... attrs) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	@Override
+	public void delete(Path path) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	@Override
+	public void copy(Path source, Path target, CopyOption... options) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	@Override
+	public void move(Path source, Path target, CopyOption... options) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	@Override
+	public boolean isSameFile(Path path, Path path2) throws IOException {
+		if (path.equals(path2))
+			return true;
+		if (!(path2 instanceof Ext2Path) || path.getFileSystem() != path2.getFileSystem())
+			return false;
+
+		Ext2FileSystem fileSystem = toExt2Path(path).getFileSystem();
+		return fileSystem.getFile(toExt2Path(path)).getInode().getNumber() == fileSystem.getFile(toExt2Path(path2))
+				.getInode().getNumber();
+	}
+
+	@Override
+	public boolean isHidden(Path path) {
+		Path name = path.getFileName();
+		return name != null && name.toString().startsWith(".");
+	}
+
+	@Override
+	public FileStore getFileStore(Path path) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void checkAccess(Path path, AccessMode... modes) throws IOException {
+		toExt2Path(path).getFileSystem().getFile(toExt2Path(path));
+
+		for (AccessMode mode : modes) {
+			if (mode == AccessMode.WRITE)
+				throw new AccessDeniedException(path.toString(), null, "ext2 file systems are read only");
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+		if (type != BasicFileAttributeView.class)
+			return null;
+
+		Ext2Path file = toExt2Path(path);
+		return (V) new BasicFileAttributeView() {
+			@Override
+			public String name() {
+				return "basic";
+			}
+
+			@Override
+			public BasicFileAttributes readAttributes() throws IOException {
+				return Ext2FileSystemProvider.this.readAttributes(file, BasicFileAttributes.class);
+			}
+
+			@Override
+			public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime) {
+				throw new ReadOnlyFileSystemException();
+			}
+		};
+	}
+
+	/**
+	 * The attributes are read from the inode of the file, which comes from the
+	 * inode cache of the volume
+	 */
+	@Override
+	public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+			throws IOException {
+		if (type != BasicFileAttributes.class)
+			throw new UnsupportedOperationException(type.getName() + " is not supported");
+
+		Ext2File file = toExt2Path(path).getFileSystem().getFile(toExt2Path(path));
+		return type.cast(new Ext2FileAttributes(file.getInode()));
+	}
+
+	@Override
+	public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+		int colon = attributes.indexOf(':');
+		if (colon != -1) {
+			if (!attributes.substring(0, colon).equals("basic"))
+				throw new UnsupportedOperationException("view '" + attributes.substring(0, colon) + "' is not supported");
+			attributes = attributes.substring(colon + 1);
+		}
+
+		return ((Ext2FileAttributes) readAttributes(path, BasicFileAttributes.class)).toMap(attributes);
+	}
+
+	@Override
+	public void setAttribute(Path path, String attribute, Object value, LinkOption... options) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	/**
+	 * Forgets a file system which was opened through a URI
+	 * 
+	 * @param fileSystem
+	 *          the closed file system
+	 */
+	void removeFileSystem(Ext2FileSystem fileSystem) {
+		synchronized (fileSystems) {
+			fileSystems.remove(fileSystem.getImage(), fileSystem);
+		}
+	}
+
+	/**
+	 * Opens an image as a file system if it holds an ext2 volume
+	 * 
+	 * @param image
+	 *          real path of the image
+	 * @return the new file system
+	 * @throws IOException
+	 *           if the image cannot be read
+	 */
+	private Ext2FileSystem open(Path image) throws IOException {
+		try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+
+			if (channel.read(buffer, magicOffset) != 2 || buffer.getShort(0) != magic)
+				throw new UnsupportedOperationException(image + " is not an ext2 image");
+		}
+
+		return new Ext2FileSystem(this, image);
+	}
+
+	/**
+	 * Returns the real path of the image a URI points to
+	 * 
+	 * @param uri
+	 *          like {@code ext2:file:///images/disk.img!/dir/file}
+	 * @return the real path of the image
+	 * @throws IOException
+	 *           if the image does not exist
+	 */
+	private Path imageOf(URI uri) throws IOException {
+		if (!getScheme().equalsIgnoreCase(uri.getScheme()))
+			throw new IllegalArgumentException("the scheme of the URI is not '" + getScheme() + "'");
+
+		String spec = uri.getSchemeSpecificPart();
+		int separator = spec.indexOf("!/");
+		if (separator != -1)
+			spec = spec.substring(0, separator);
+
+		try {
+			return Paths.get(new URI(spec)).toRealPath();
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private static Ext2Path toExt2Path(Path path) {
+		if (!(path instanceof Ext2Path))
+			throw new ProviderMismatchException();
+
+		return (Ext2Path) path;
+	}
+
+	/**
+	 * Refuses any option which would change a file
+	 * 
+	 * @param options
+	 *          the options a file is opened with
+	 */
+	private static void checkReadOnly(Set<? extends OpenOption> options) {
+		for (OpenOption option : options) {
+			if (option != StandardOpenOption.READ && option != LinkOption.NOFOLLOW_LINKS)
+				throw new UnsupportedOperationException("'" + option + "' not allowed");
+		}
+	}
+
+	/**
+	 * A stream of the paths of the entries of a directory
+	 */
+	private static class PathStream implements DirectoryStream<Path> {
+		private final Ext2Path directory;
+		private final Ext2DirectoryStream entries;
+		private final DirectoryStream.Filter<? super Path> filter;
+
+		PathStream(Ext2Path directory, Ext2DirectoryStream entries, DirectoryStream.Filter<? super Path> filter) {
+			this.directory = directory;
+			this.entries = entries;
+			this.filter = filter;
+		}
+
+		@Override
+		public Iterator<Path> iterator() {
+			Iterator<DirEntry> iterator = entries.iterator();
+
+			return new Iterator<Path>() {
+				private Path next;
+
+				@Override
+				public boolean hasNext() {
+					while (next == null && iterator.hasNext()) {
+						Path path = directory.resolve(iterator.next().getName());
+
+						try {
+							if (filter == null || filter.accept(path))
+								next = path;
+						} catch (IOException e) {
+							throw new DirectoryIteratorException(e);
+						}
+					}
+					return next != null;
+				}
+
+				@Override
+				public Path next() {
+					if (!hasNext())
+						throw new NoSuchElementException();
+
+					Path path = next;
+					next = null;
+					return path;
+				}
+			};
+		}
+
+		@Override
+		public void close() {
+			entries.close();
+		}
+	}
+}
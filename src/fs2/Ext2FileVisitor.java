@@ -0,0 +1,19 @@
+package fs2;
+
+/**
+ * Visits the files found by a {@link VolumeWalker}
+ * 
+ * @author Georgi Valchanov
+ *
+ */
+@FunctionalInterface
+public interface Ext2FileVisitor {
+
+	/**
+	 * Visits a file.
+	 * @param file the visited file.
+	 * @param depth the depth of the file below the directory where the walk started(its entries are at depth 1).
+	 * @return true if the walk should go into the file when it is a directory; false otherwise.
+	 */
+	boolean visit(Ext2File file, int depth);
+}
@@ -0,0 +1,127 @@
+package fs2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link InputStream} over the contents of an {@link Ext2File}. The file is
+ * read ahead in chunks of the size of the buffer. Reads bigger than the buffer
+ * go straight into the caller's array
+ * 
+ * @author Georgi Valchanov
+ */
+class Ext2InputStream extends InputStream {
+
+	private final Ext2File file;
+	/**
+	 * Holds the bytes which were read ahead
+	 */
+	private final ByteBuffer buffer;
+	/**
+	 * Position in the file of the next byte to be read into the buffer
+	 */
+	private long position;
+	private boolean closed;
+
+	Ext2InputStream(Ext2File file, int bufferSize) {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("buffer size must be positive: " + bufferSize);
+
+		this.file = file;
+		buffer = ByteBuffer.allocate(bufferSize);
+		buffer.flip();
+	}
+
+	@Override
+	public int read() throws IOException {
+		ensureOpen();
+		if (!buffer.hasRemaining() && !fill())
+			return -1;
+
+		return buffer.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || len > b.length - off)
+			throw new IndexOutOfBoundsException();
+		if (len == 0)
+			return 0;
+
+		int read = 0;
+		// give what is left in the buffer first
+		if (buffer.hasRemaining()) {
+			read = Math.min(len, buffer.remaining());
+			buffer.get(b, off, read);
+		}
+
+		if (read < len) {
+			if (len - read >= buffer.capacity()) {
+				// big reads skip the buffer
+				int direct = file.read(position, ByteBuffer.wrap(b, off + read, len - read));
+				if (direct > 0) {
+					position += direct;
+					read += direct;
+				}
+			}
+			else if (fill()) {
+				int more = Math.min(len - read, buffer.remaining());
+				buffer.get(b, off + read, more);
+				read += more;
+			}
+		}
+
+		return read == 0 ? -1 : read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		ensureOpen();
+		if (n <= 0)
+			return 0;
+
+		long skipped = Math.min(n, buffer.remaining());
+		buffer.position(buffer.position() + (int) skipped);
+
+		// skip in the file past the buffer without reading
+		long inFile = Math.max(0, Math.min(n - skipped, file.size() - position));
+		position += inFile;
+
+		return skipped + inFile;
+	}
+
+	@Override
+	public int available() throws IOException {
+		ensureOpen();
+		return (int) Math.min(Integer.MAX_VALUE, buffer.remaining() + Math.max(0, file.size() - position));
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	/**
+	 * Reads the next chunk of the file into the buffer
+	 * 
+	 * @return false if the end of the file was reached
+	 */
+	private boolean fill() {
+		buffer.clear();
+		int read = file.read(position, buffer);
+		buffer.flip();
+
+		if (read <= 0)
+			return false;
+
+		position += read;
+		return true;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed)
+			throw new IOException("the stream is closed");
+	}
+}
@@ -0,0 +1,400 @@
+package fs2;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A path to a file in an {@link Ext2FileSystem}. Names are separated by '/'
+ * 
+ * @author Georgi Valchanov
+ */
+class Ext2Path implements Path {
+
+	private final Ext2FileSystem fileSystem;
+	/**
+	 * The path without repeated or trailing separators
+	 */
+	private final String path;
+	/**
+	 * Index in {@link #path} of the first character of every name
+	 */
+	private volatile int[] offsets;
+
+	Ext2Path(Ext2FileSystem fileSystem, String path) {
+		this.fileSystem = fileSystem;
+		this.path = normalizeSeparators(path);
+	}
+
+	@Override
+	public Ext2FileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	@Override
+	public boolean isAbsolute() {
+		return path.startsWith("/");
+	}
+
+	@Override
+	public Path getRoot() {
+		return isAbsolute() ? new Ext2Path(fileSystem, "/") : null;
+	}
+
+	@Override
+	public Path getFileName() {
+		int count = getNameCount();
+
+		if (count == 0)
+			return path.isEmpty() ? this : null;
+		if (count == 1 && !isAbsolute())
+			return this;
+
+		return new Ext2Path(fileSystem, path.substring(offsets()[count - 1]));
+	}
+
+	@Override
+	public Path getParent() {
+		int count = getNameCount();
+
+		if (count == 0)
+			return null;
+		if (count == 1)
+			return getRoot();
+
+		return new Ext2Path(fileSystem, path.substring(0, offsets()[count - 1] - 1));
+	}
+
+	@Override
+	public int getNameCount() {
+		return offsets().length;
+	}
+
+	@Override
+	public Path getName(int index) {
+		return subpath(index, index + 1);
+	}
+
+	@Override
+	public Path subpath(int beginIndex, int endIndex) {
+		int[] offsets = offsets();
+		if (beginIndex < 0 || beginIndex >= offsets.length || endIndex > offsets.length || beginIndex >= endIndex)
+			throw new IllegalArgumentException();
+
+		int end = endIndex == offsets.length ? path.length() : offsets[endIndex] - 1;
+		return new Ext2Path(fileSystem, path.substring(offsets[beginIndex], end));
+	}
+
+	@Override
+	public boolean startsWith(Path other) {
+		// a path of another file system is never a prefix
+		if (!isSameFileSystem(other))
+			return false;
+		Ext2Path o = (Ext2Path) other;
+
+		if (o.isAbsolute() != isAbsolute() || o.getNameCount() > getNameCount())
+			return false;
+		if (o.path.isEmpty())
+			return path.isEmpty();
+
+		for (int i = 0; i < o.getNameCount(); i++) {
+			if (!o.name(i).equals(name(i)))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean startsWith(String other) {
+		return startsWith(fileSystem.getPath(other));
+	}
+
+	@Override
+	public boolean endsWith(Path other) {
+		if (!isSameFileSystem(other))
+			return false;
+		Ext2Path o = (Ext2Path) other;
+
+		if (o.isAbsolute())
+			return o.equals(this);
+		if (o.path.isEmpty())
+			return path.isEmpty();
+
+		int count = getNameCount();
+		int otherCount = o.getNameCount();
+		if (otherCount > count)
+			return false;
+
+		for (int i = 1; i <= otherCount; i++) {
+			if (!o.name(otherCount - i).equals(name(count - i)))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean endsWith(String other) {
+		return endsWith(fileSystem.getPath(other));
+	}
+
+	@Override
+	public Path normalize() {
+		ArrayList<String> names = new ArrayList<>();
+
+		for (int i = 0; i < getNameCount(); i++) {
+			String name = name(i);
+
+			if (name.equals("."))
+				continue;
+
+			if (name.equals("..")) {
+				if (!names.isEmpty() && !names.get(names.size() - 1).equals("..")) {
+					names.remove(names.size() - 1);
+					continue;
+				}
+				// the parent of the root is the root
+				if (isAbsolute())
+					continue;
+			}
+			names.add(name);
+		}
+
+		return new Ext2Path(fileSystem, (isAbsolute() ? "/" : "") + String.join("/", names));
+	}
+
+	@Override
+	public Path resolve(Path other) {
+		Ext2Path o = toExt2Path(other);
+
+		if (o.isAbsolute() || path.isEmpty())
+			return o;
+		if (o.path.isEmpty())
+			return this;
+
+		return new Ext2Path(fileSystem, path + "/" + o.path);
+	}
+
+	@Override
+	public Path resolve(String other) {
+		return resolve(fileSystem.getPath(other));
+	}
+
+	@Override
+	public Path resolveSibling(Path other) {
+		Path parent = getParent();
+		return parent == null ? other : parent.resolve(other);
+	}
+
+	@Override
+	public Path resolveSibling(String other) {
+		return resolveSibling(fileSystem.getPath(other));
+	}
+
+	@Override
+	public Path relativize(Path other) {
+		Ext2Path o = toExt2Path(other);
+
+		if (o.isAbsolute() != isAbsolute())
+			throw new IllegalArgumentException("only paths of the same type can be relativized");
+		if (path.isEmpty())
+			return o;
+
+		int count = getNameCount();
+		int otherCount = o.getNameCount();
+
+		// skip the names both paths share
+		int common = 0;
+		while (common < count && common < otherCount && name(common).equals(o.name(common))) {
+			common++;
+		}
+
+		StringBuilder relative = new StringBuilder();
+		for (int i = common; i < count; i++) {
+			relative.append(relative.length() == 0 ? ".." : "/..");
+		}
+		for (int i = common; i < otherCount; i++) {
+			if (relative.length() > 0)
+				relative.append('/');
+			relative.append(o.name(i));
+		}
+
+		return new Ext2Path(fileSystem, relative.toString());
+	}
+
+	@Override
+	public URI toUri() {
+		return fileSystem.toUri(toAbsolutePath().toString());
+	}
+
+	@Override
+	public Ext2Path toAbsolutePath() {
+		return isAbsolute() ? this : new Ext2Path(fileSystem, "/" + path);
+	}
+
+	@Override
+	public Path toRealPath(LinkOption... options) throws IOException {
+		Path real = toAbsolutePath().normalize();
+		fileSystem.provider().checkAccess(real);
+		return real;
+	}
+
+	@Override
+	public File toFile() {
+		throw new UnsupportedOperationException("ext2 paths are not files of the default file system");
+	}
+
+	@Override
+	public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+		throw new UnsupportedOperationException("ext2 file systems are read only");
+	}
+
+	@Override
+	public WatchKey register(WatchService watcher, WatchEvent.Kind<?>... events) {
+		return register(watcher, events, new WatchEvent.Modifier[0]);
+	}
+
+	@Override
+	public Iterator<Path> iterator() {
+		return new Iterator<Path>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < getNameCount();
+			}
+
+			@Override
+			public Path next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				return getName(next++);
+			}
+		};
+	}
+
+	@Override
+	public int compareTo(Path other) {
+		return path.compareTo(toExt2Path(other).path);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Ext2Path))
+			return false;
+
+		Ext2Path other = (Ext2Path) obj;
+		return fileSystem == other.fileSystem && path.equals(other.path);
+	}
+
+	@Override
+	public int hashCode() {
+		return path.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+	/**
+	 * Returns one of the names of this path as a string
+	 * 
+	 * @param index
+	 *          of the name
+	 * @return the name
+	 */
+	String name(int index) {
+		int[] offsets = offsets();
+		int end = index + 1 == offsets.length ? path.length() : offsets[index + 1] - 1;
+
+		return path.substring(offsets[index], end);
+	}
+
+	/**
+	 * Returns the indexes of the first characters of the names of this path
+	 * 
+	 * @return the indexes of the first characters of the names
+	 */
+	private int[] offsets() {
+		int[] o = offsets;
+		if (o == null) {
+			int count = 0;
+			for (int i = 0; i < path.length(); i++) {
+				if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/'))
+					count++;
+			}
+
+			o = new int[count];
+			count = 0;
+			for (int i = 0; i < path.length(); i++) {
+				if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/'))
+					o[count++] = i;
+			}
+			offsets = o;
+		}
+		return o;
+	}
+
+	/**
+	 * Casts a path to an ext2 path of the same file system
+	 * 
+	 * @param other
+	 *          path to be cast
+	 * @return the ext2 path
+	 */
+	private Ext2Path toExt2Path(Path other) {
+		if (!isSameFileSystem(other))
+			throw new ProviderMismatchException();
+
+		return (Ext2Path) other;
+	}
+
+	/**
+	 * Tests whether a path is an ext2 path of the same file system
+	 * 
+	 * @param other
+	 *          path to be tested
+	 * @return true if the path belongs to the file system of this path
+	 */
+	private boolean isSameFileSystem(Path other) {
+		return other instanceof Ext2Path && ((Ext2Path) other).fileSystem == fileSystem;
+	}
+
+	/**
+	 * Removes repeated and trailing separators
+	 * 
+	 * @param path
+	 *          to be cleaned
+	 * @return the path without repeated and trailing separators
+	 */
+	private static String normalizeSeparators(String path) {
+		StringBuilder builder = new StringBuilder(path.length());
+
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+
+			if (c == '\u0000')
+				throw new InvalidPathException(path, "nul character not allowed");
+			if (c == '/' && builder.length() > 0 && builder.charAt(builder.length() - 1) == '/')
+				continue;
+
+			builder.append(c);
+		}
+
+		if (builder.length() > 1 && builder.charAt(builder.length() - 1) == '/')
+			builder.setLength(builder.length() - 1);
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,189 @@
+package fs2;
+
+import java.util.Arrays;
+
+/**
+ * Maps the blocks of a file to the blocks of the volume as runs of (logical
+ * block, physical block, length). Holes are stored as runs whose physical block
+ * is 0. The runs are held in primitive arrays and are searched with a binary
+ * search
+ * 
+ * @author Georgi Valchanov
+ */
+public class ExtentMap {
+
+	/**
+	 * Index of the first block of each run in the file
+	 */
+	private int[] logical;
+	/**
+	 * Number of the first block of each run in the volume(unsigned)
+	 */
+	private int[] physical;
+	/**
+	 * Number of blocks in each run
+	 */
+	private int[] length;
+	/**
+	 * Number of runs
+	 */
+	private int runs;
+	/**
+	 * Number of blocks in the file
+	 */
+	private long blocks;
+
+	/**
+	 * Creates an empty map
+	 */
+	ExtentMap() {
+		logical = new int[4];
+		physical = new int[4];
+		length = new int[4];
+	}
+
+	/**
+	 * Adds the next block of the file to the map
+	 * 
+	 * @param block
+	 *          number in the volume(0 for a hole)
+	 */
+	void append(int block) {
+		append(block, 1);
+	}
+
+	/**
+	 * Adds the next {@code count} blocks of the file to the map. They either form
+	 * a hole or are consecutive in the volume
+	 * 
+	 * @param block
+	 *          number of the first block in the volume(0 for a hole)
+	 * @param count
+	 *          number of blocks
+	 */
+	void append(int block, int count) {
+		if (count <= 0)
+			return;
+
+		if (runs > 0) {
+			int last = runs - 1;
+			boolean hole = physical[last] == 0;
+
+			// extend the last run if the new blocks continue it
+			if (hole ? block == 0 : block != 0 && block == physical[last] + length[last]) {
+				length[last] += count;
+				blocks += count;
+				return;
+			}
+		}
+
+		if (runs == logical.length) {
+			logical = Arrays.copyOf(logical, runs * 2);
+			physical = Arrays.copyOf(physical, runs * 2);
+			length = Arrays.copyOf(length, runs * 2);
+		}
+
+		logical[runs] = (int) blocks;
+		physical[runs] = block;
+		length[runs] = count;
+		runs++;
+		blocks += count;
+	}
+
+	/**
+	 * Returns the number of the block in the volume that holds a block of the file
+	 * 
+	 * @param block
+	 *          index of the block in the file
+	 * @return number of the block in the volume </br>
+	 *         0 - if the block is a hole or past the end of the file
+	 */
+	public long lookup(long block) {
+		int run = find(block);
+
+		if (run < 0 || physical[run] == 0)
+			return 0;
+
+		return (physical[run] & 0xffffffffL) + (block - (logical[run] & 0xffffffffL));
+	}
+
+	/**
+	 * Returns the index of the run holding a block of the file
+	 * 
+	 * @param block
+	 *          index of the block in the file
+	 * @return index of the run </br>
+	 *         -1 - if the block is past the end of the file
+	 */
+	int find(long block) {
+		if (block < 0 || block >= blocks)
+			return -1;
+
+		int low = 0;
+		int high = runs - 1;
+
+		// find the last run which starts at or before the block
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+
+			if ((logical[middle] & 0xffffffffL) <= block)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Returns the number of runs in the map
+	 * 
+	 * @return the number of runs in the map
+	 */
+	public int runs() {
+		return runs;
+	}
+
+	/**
+	 * Returns the number of blocks in the file
+	 * 
+	 * @return the number of blocks in the file
+	 */
+	public long blocks() {
+		return blocks;
+	}
+
+	/**
+	 * Returns the index in the file of the first block of a run
+	 * 
+	 * @param run
+	 *          index of the run
+	 * @return index of the first block of the run
+	 */
+	public long logicalStart(int run) {
+		return logical[run] & 0xffffffffL;
+	}
+
+	/**
+	 * Returns the number in the volume of the first block of a run
+	 * 
+	 * @param run
+	 *          index of the run
+	 * @return number of the first block of the run </br>
+	 *         0 - if the run is a hole
+	 */
+	public long physicalStart(int run) {
+		return physical[run] & 0xffffffffL;
+	}
+
+	/**
+	 * Returns the number of blocks in a run
+	 * 
+	 * @param run
+	 *          index of the run
+	 * @return the number of blocks in the run
+	 */
+	public int length(int run) {
+		return length[run];
+	}
+}
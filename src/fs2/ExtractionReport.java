@@ -0,0 +1,150 @@
+package fs2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of an extraction: the result of every file, the failures and the
+ * throughput
+ * 
+ * @author Georgi Valchanov
+ */
+public class ExtractionReport {
+
+	private final List<Entry> entries;
+	private final long elapsedNanos;
+
+	ExtractionReport(List<Entry> entries, long elapsedNanos) {
+		this.entries = Collections.unmodifiableList(entries);
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the results of all the files in the order they were requested
+	 * 
+	 * @return the results of all the files
+	 */
+	public List<Entry> entries() {
+		return entries;
+	}
+
+	/**
+	 * Returns the results of the files that could not be extracted
+	 * 
+	 * @return the results of the files that could not be extracted
+	 */
+	public List<Entry> failures() {
+		List<Entry> failures = new ArrayList<>();
+		for (Entry entry : entries) {
+			if (!entry.succeeded())
+				failures.add(entry);
+		}
+		return failures;
+	}
+
+	/**
+	 * Returns the number of bytes written by all the files
+	 * 
+	 * @return the number of bytes written
+	 */
+	public long bytes() {
+		long bytes = 0;
+		for (Entry entry : entries) {
+			bytes += entry.bytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the wall clock time of the whole extraction in nanoseconds
+	 * 
+	 * @return the time of the whole extraction in nanoseconds
+	 */
+	public long elapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of bytes written per second
+	 * 
+	 * @return the number of bytes written per second
+	 */
+	public double bytesPerSecond() {
+		return elapsedNanos == 0 ? 0 : bytes() * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d files, %d failed, %d bytes in %.3f s (%.1f MB/s)", entries.size(), failures().size(),
+				bytes(), elapsedNanos / 1e9, bytesPerSecond() / (1024 * 1024));
+	}
+
+	/**
+	 * The result of a single file
+	 */
+	public static class Entry {
+		private final String path;
+		private final long bytes;
+		private final long nanos;
+		private final Exception error;
+
+		Entry(String path, long bytes, long nanos, Exception error) {
+			this.path = path;
+			this.bytes = bytes;
+			this.nanos = nanos;
+			this.error = error;
+		}
+
+		/**
+		 * Returns the absolute path of the file in the volume
+		 * 
+		 * @return the absolute path of the file in the volume
+		 */
+		public String path() {
+			return path;
+		}
+
+		/**
+		 * Returns the number of bytes written
+		 * 
+		 * @return the number of bytes written
+		 */
+		public long bytes() {
+			return bytes;
+		}
+
+		/**
+		 * Returns the time the extraction of the file took in nanoseconds
+		 * 
+		 * @return the time the extraction of the file took in nanoseconds
+		 */
+		public long nanos() {
+			return nanos;
+		}
+
+		/**
+		 * Returns why the file could not be extracted
+		 * 
+		 * @return the cause of the failure </br>
+		 *         null - if the file was extracted
+		 */
+		public Exception error() {
+			return error;
+		}
+
+		/**
+		 * Tests whether the file was extracted
+		 * 
+		 * @return true if the file was extracted
+		 */
+		public boolean succeeded() {
+			return error == null;
+		}
+
+		@Override
+		public String toString() {
+			return path + (succeeded() ? " " + bytes + " bytes" : " failed: " + error);
+		}
+	}
+}
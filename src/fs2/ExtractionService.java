@@ -0,0 +1,293 @@
+package fs2;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts many files from one volume at once. The files are started in the
+ * order of their first block in the volume to cut down on seeking, and each is
+ * extracted on its own virtual thread when the runtime has them, or on a
+ * bounded thread pool otherwise. At most {@code maxConcurrency} files are
+ * extracted at the same time. The volume is shared by all the threads.<br>
+ * A sparse service writes the holes of the files as holes of the extracted
+ * files, so they take only as much space as the data.
+ * 
+ * @author Georgi Valchanov
+ */
+public class ExtractionService {
+
+	private final Volume volume;
+	private final int maxConcurrency;
+	private final boolean sparse;
+
+	/**
+	 * Creates a new service which writes the holes of the files as zeros
+	 * 
+	 * @param volume
+	 *          - where the files are extracted from
+	 * @param maxConcurrency
+	 *          - maximum number of files extracted at the same time
+	 */
+	public ExtractionService(Volume volume, int maxConcurrency) {
+		this(volume, maxConcurrency, false);
+	}
+
+	/**
+	 * Creates a new service
+	 * 
+	 * @param volume
+	 *          - where the files are extracted from
+	 * @param maxConcurrency
+	 *          - maximum number of files extracted at the same time
+	 * @param sparse
+	 *          - whether the holes of the files are left as holes of the
+	 *          extracted files
+	 */
+	public ExtractionService(Volume volume, int maxConcurrency, boolean sparse) {
+		if (maxConcurrency <= 0)
+			throw new IllegalArgumentException("concurrency must be positive: " + maxConcurrency);
+
+		this.volume = volume;
+		this.maxConcurrency = maxConcurrency;
+		this.sparse = sparse;
+	}
+
+	/**
+	 * Extracts files into a directory. A file keeps its path below the
+	 * destination. A file which cannot be extracted, or whose path leads outside
+	 * the destination, is reported as a failure and does not stop the others.
+	 * When several paths lead to the same target only the first is written, and
+	 * the others are reported with its outcome and no bytes
+	 * 
+	 * @param paths
+	 *          - absolute paths of the files in the volume
+	 * @param destination
+	 *          - the directory where the files are written
+	 * @return the result of every file
+	 * @throws InterruptedException
+	 *           if the extraction is interrupted
+	 */
+	public ExtractionReport extract(List<String> paths, Path destination) throws InterruptedException {
+		long start = System.nanoTime();
+		List<Job> jobs = new ArrayList<>();
+
+		for (String path : paths) {
+			Job job = new Job(path);
+			try {
+				job.file = volume.getFile(path);
+			} catch (FileNotFoundException e) {
+				job.result = new ExtractionReport.Entry(path, 0, 0, e);
+			}
+			jobs.add(job);
+		}
+
+		run(jobs, destination);
+		return report(jobs, start);
+	}
+
+	/**
+	 * Extracts the regular files whose absolute paths match a glob, e.g.
+	 * {@code /var/log/**.gz}
+	 * 
+	 * @param glob
+	 *          - matched against the absolute paths of the files
+	 * @param destination
+	 *          - the directory where the files are written
+	 * @return the result of every file
+	 * @throws InterruptedException
+	 *           if the extraction is interrupted
+	 */
+	public ExtractionReport extractGlob(String glob, Path destination) throws InterruptedException {
+		long start = System.nanoTime();
+		Pattern pattern = Pattern.compile(Ext2FileSystem.globToRegex(glob));
+		ConcurrentLinkedQueue<Job> found = new ConcurrentLinkedQueue<>();
+
+		new VolumeWalker(Integer.MAX_VALUE, null, maxConcurrency, false).walk(volume.getRoot(), (file, depth) -> {
+			if (file.isFile() && pattern.matcher(file.getAbsolutePath()).matches()) {
+				Job job = new Job(file.getAbsolutePath());
+				job.file = file;
+				found.add(job);
+			}
+			return true;
+		});
+
+		List<Job> jobs = new ArrayList<>(found);
+		jobs.sort(Comparator.comparing(job -> job.path));
+
+		run(jobs, destination);
+		return report(jobs, start);
+	}
+
+	/**
+	 * Extracts the files of the jobs that were found
+	 * 
+	 * @param jobs
+	 *          - the files to be extracted
+	 * @param destination
+	 *          - the directory where the files are written
+	 * @throws InterruptedException
+	 *           if the extraction is interrupted
+	 */
+	private void run(List<Job> jobs, Path destination) throws InterruptedException {
+		Path root = destination.toAbsolutePath().normalize();
+		Map<Path, Job> targets = new HashMap<>();
+		List<Job> pending = new ArrayList<>();
+		List<Job> duplicates = new ArrayList<>();
+
+		for (Job job : jobs) {
+			if (job.file == null)
+				continue;
+
+			// ".." is followed by the volume, so it must not lead out of the destination
+			job.target = root.resolve(job.path.replaceFirst("^/+", "")).normalize();
+			if (!job.target.startsWith(root)) {
+				job.result = new ExtractionReport.Entry(job.path, 0, 0,
+						new IOException(job.path + " is outside " + destination));
+				continue;
+			}
+
+			// two jobs must not write the same file at once
+			Job first = targets.putIfAbsent(job.target, job);
+			if (first != null) {
+				job.duplicateOf = first;
+				duplicates.add(job);
+				continue;
+			}
+
+			job.firstBlock = job.file.size() > 0 ? job.file.physicalBlock(0) : 0;
+			pending.add(job);
+		}
+
+		// start the files in the order they are laid out in the volume
+		Collections.sort(pending, Comparator.comparingLong(job -> job.firstBlock));
+
+		Semaphore permits = new Semaphore(maxConcurrency);
+		ExecutorService executor = newExecutor();
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (Job job : pending) {
+				permits.acquire();
+				futures.add(executor.submit(() -> {
+					try {
+						job.result = extract(job, sparse);
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (Job job : duplicates) {
+			job.result = new ExtractionReport.Entry(job.path, 0, 0, job.duplicateOf.result.error());
+		}
+	}
+
+	/**
+	 * Extracts a single file
+	 * 
+	 * @param job
+	 *          - the file to be extracted
+	 * @param sparse
+	 *          - whether the holes of the file are left as holes
+	 * @return the result of the file
+	 */
+	private static ExtractionReport.Entry extract(Job job, boolean sparse) {
+		long start = System.nanoTime();
+		try {
+			Path target = job.target;
+
+			if (job.file.isDirectory()) {
+				Files.createDirectories(target);
+				return new ExtractionReport.Entry(job.path, 0, System.nanoTime() - start, null);
+			}
+			if (!job.file.isFile())
+				throw new IOException(job.path + " is not a regular file");
+
+			if (target.getParent() != null)
+				Files.createDirectories(target.getParent());
+
+			long bytes;
+			try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				bytes = sparse ? job.file.transferSparseTo(channel) : job.file.transferTo(0, job.file.size(), channel);
+			}
+
+			return new ExtractionReport.Entry(job.path, bytes, System.nanoTime() - start, null);
+		} catch (IOException | RuntimeException e) {
+			return new ExtractionReport.Entry(job.path, 0, System.nanoTime() - start, e);
+		}
+	}
+
+	/**
+	 * Collects the results of the jobs in their original order
+	 */
+	private static ExtractionReport report(List<Job> jobs, long start) {
+		List<ExtractionReport.Entry> entries = new ArrayList<>();
+		for (Job job : jobs) {
+			entries.add(job.result);
+		}
+		return new ExtractionReport(entries, System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns an executor which starts a virtual thread for every task when the
+	 * runtime supports them, or a pool of {@link #maxConcurrency} threads
+	 * otherwise
+	 * 
+	 * @return a new executor
+	 */
+	private ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(maxConcurrency);
+		}
+	}
+
+	/**
+	 * A file to be extracted and its result
+	 */
+	private static class Job {
+		final String path;
+		Ext2File file;
+		/**
+		 * Where the file is written, below the destination
+		 */
+		Path target;
+		/**
+		 * The job which writes the same target(null if this job writes it)
+		 */
+		Job duplicateOf;
+		long firstBlock;
+		volatile ExtractionReport.Entry result;
+
+		Job(String path) {
+			this.path = path;
+		}
+	}
+}
@@ -8,27 +8,70 @@ public class GroupDescriptor {
 	public static final int size = 32;
 
 	/**
-	 * The offset of the inode table pointer
+	 * The decoded table the descriptor belongs to
 	 */
-	private static final int inodeTablePointer = 8;
-
+	private final GroupDescriptorTable table;
 	/**
-	 * Block number the group's inode table
+	 * Number of the group
 	 */
-	private int inodeTableBlNumber;
+	private final int number;
 
 	private Volume vol;
-	private int offset;
 
 	/**
-	 * Creates a new Group Descriptor
+	 * Creates a new Group Descriptor by decoding the descriptor at an offset
 	 * 
 	 * @param volume
 	 * @param offset
+	 *          the byte from which the descriptor is written
+	 * @deprecated the descriptors are decoded once when the volume is opened. Use
+	 *             {@link Volume#getGroupDescriptor(int)} instead
+	 */
+	@Deprecated
+	public GroupDescriptor(Volume volume, long offset) {
+		this(volume, new GroupDescriptorTable(volume, offset, 1), 0);
+	}
+
+	/**
+	 * Creates a view of a decoded group descriptor
+	 * 
+	 * @param volume
+	 * @param table
+	 *          the decoded group descriptor table
+	 * @param number
+	 *          of the group
+	 */
+	GroupDescriptor(Volume volume, GroupDescriptorTable table, int number) {
+		vol = volume;
+		this.table = table;
+		this.number = number;
+	}
+
+	/**
+	 * Returns the number of the group
+	 * 
+	 * @return number of the group
+	 */
+	public int number() {
+		return number;
+	}
+
+	/**
+	 * Returns the block number the group's block bitmap
+	 * 
+	 * @return Block number the group's block bitmap
+	 */
+	public int blockBitmapPointer() {
+		return table.blockBitmap(number);
+	}
+
+	/**
+	 * Returns the block number the group's inode bitmap
+	 * 
+	 * @return Block number the group's inode bitmap
 	 */
-	public GroupDescriptor(Volume volume, int offset) {
-		this.offset = offset;
-		inodeTableBlNumber = volume.getIntAt(offset + inodeTablePointer);
+	public int inodeBitmapPointer() {
+		return table.inodeBitmap(number);
 	}
 
 	/**
@@ -37,7 +80,43 @@ public class GroupDescriptor {
 	 * @return Block number the group's inode table
 	 */
 	public int inodeTablePointer() {
-		return inodeTableBlNumber;
+		return table.inodeTable(number);
+	}
+
+	/**
+	 * Returns the number of free blocks in the group
+	 * 
+	 * @return number of free blocks
+	 */
+	public int freeBlocks() {
+		return table.freeBlocks(number);
+	}
+
+	/**
+	 * Returns the number of free inodes in the group
+	 * 
+	 * @return number of free inodes
+	 */
+	public int freeInodes() {
+		return table.freeInodes(number);
+	}
+
+	/**
+	 * Returns the number of directories in the group
+	 * 
+	 * @return number of directories
+	 */
+	public int usedDirectories() {
+		return table.usedDirs(number);
+	}
+
+	/**
+	 * Returns the flags of the group
+	 * 
+	 * @return flags of the group
+	 */
+	public int flags() {
+		return table.flags(number);
 	}
 
 	/**
@@ -47,6 +126,6 @@ public class GroupDescriptor {
 	 * @return
 	 */
 	byte[] getBytes() {
-		return vol.getBytes(offset, Volume.blockSize);
+		return vol.getBytes(table.offsetOf(number), size);
 	}
 }
@@ -0,0 +1,142 @@
+package fs2;
+
+/**
+ * The group descriptor table of a volume, decoded once when the volume is
+ * opened. Every field of every descriptor is held in a primitive array indexed
+ * by the number of the group, so finding the inode table or the bitmaps of a
+ * group does not touch the image
+ * 
+ * @author Georgi Valchanov
+ */
+class GroupDescriptorTable {
+
+	/*
+	 * Offsets in a group descriptor
+	 */
+	private static final int blockBitmapPointer = 0;
+	private static final int inodeBitmapPointer = 4;
+	private static final int inodeTablePointer = 8;
+	private static final int freeBlocksCount = 12;
+	private static final int freeInodesCount = 14;
+	private static final int usedDirsCount = 16;
+	private static final int flags = 18;
+
+	/**
+	 * Flag of a group whose inode table and bitmap are not initialized
+	 */
+	static final int inodesUninitialized = 0x1;
+
+	/**
+	 * Offset of the table in the volume
+	 */
+	private final long offset;
+	/**
+	 * Block number of the block bitmap of each group
+	 */
+	private final int[] blockBitmap;
+	/**
+	 * Block number of the inode bitmap of each group
+	 */
+	private final int[] inodeBitmap;
+	/**
+	 * Block number of the inode table of each group
+	 */
+	private final int[] inodeTable;
+	/**
+	 * Number of free blocks in each group
+	 */
+	private final int[] freeBlocks;
+	/**
+	 * Number of free inodes in each group
+	 */
+	private final int[] freeInodes;
+	/**
+	 * Number of directories in each group
+	 */
+	private final int[] usedDirs;
+	/**
+	 * Flags of each group
+	 */
+	private final int[] groupFlags;
+
+	/**
+	 * Decodes the group descriptor table
+	 * 
+	 * @param volume
+	 *          where the table is written
+	 * @param offset
+	 *          the byte from which the table starts
+	 * @param groups
+	 *          number of groups in the volume
+	 */
+	GroupDescriptorTable(Volume volume, long offset, int groups) {
+		this.offset = offset;
+		blockBitmap = new int[groups];
+		inodeBitmap = new int[groups];
+		inodeTable = new int[groups];
+		freeBlocks = new int[groups];
+		freeInodes = new int[groups];
+		usedDirs = new int[groups];
+		groupFlags = new int[groups];
+
+		for (int i = 0; i < groups; i++) {
+			long gd = offset + (long) i * GroupDescriptor.size;
+
+			blockBitmap[i] = volume.getIntAt(gd + blockBitmapPointer);
+			inodeBitmap[i] = volume.getIntAt(gd + inodeBitmapPointer);
+			inodeTable[i] = volume.getIntAt(gd + inodeTablePointer);
+			freeBlocks[i] = volume.getShortAt(gd + freeBlocksCount) & 0xffff;
+			freeInodes[i] = volume.getShortAt(gd + freeInodesCount) & 0xffff;
+			usedDirs[i] = volume.getShortAt(gd + usedDirsCount) & 0xffff;
+			groupFlags[i] = volume.getShortAt(gd + flags) & 0xffff;
+		}
+	}
+
+	/**
+	 * Returns the number of groups in the table
+	 * 
+	 * @return number of groups
+	 */
+	int groups() {
+		return inodeTable.length;
+	}
+
+	/**
+	 * Returns the offset of a group's descriptor in the volume
+	 * 
+	 * @param group
+	 *          number of the group
+	 * @return offset of the descriptor
+	 */
+	long offsetOf(int group) {
+		return offset + (long) group * GroupDescriptor.size;
+	}
+
+	int blockBitmap(int group) {
+		return blockBitmap[group];
+	}
+
+	int inodeBitmap(int group) {
+		return inodeBitmap[group];
+	}
+
+	int inodeTable(int group) {
+		return inodeTable[group];
+	}
+
+	int freeBlocks(int group) {
+		return freeBlocks[group];
+	}
+
+	int freeInodes(int group) {
+		return freeInodes[group];
+	}
+
+	int usedDirs(int group) {
+		return usedDirs[group];
+	}
+
+	int flags(int group) {
+		return groupFlags[group];
+	}
+}
@@ -0,0 +1,210 @@
+package fs2;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The digests of the regular files of a volume, sorted by path. A manifest is
+ * written in the format of sha256sum, a digest and an absolute path per line,
+ * so its algorithm is known from the length of the digests. Files which could
+ * not be read have no digest and are not written
+ * 
+ * @author Georgi Valchanov
+ */
+public class HashManifest {
+
+	private final ContentHasher.Algorithm algorithm;
+	private final List<Entry> entries;
+
+	/**
+	 * Creates a manifest
+	 * 
+	 * @param algorithm
+	 *          - of the digests
+	 * @param entries
+	 *          - the digests of the files, sorted by path
+	 */
+	HashManifest(ContentHasher.Algorithm algorithm, List<Entry> entries) {
+		this.algorithm = algorithm;
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Returns the algorithm of the digests
+	 * 
+	 * @return the algorithm of the digests
+	 */
+	public ContentHasher.Algorithm algorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Returns the digests of the files, sorted by path
+	 * 
+	 * @return the digests of the files
+	 */
+	public List<Entry> entries() {
+		return entries;
+	}
+
+	/**
+	 * Returns the files which could not be read
+	 * 
+	 * @return the entries of the files which could not be read
+	 */
+	public List<Entry> failures() {
+		List<Entry> failures = new ArrayList<>();
+		for (Entry entry : entries) {
+			if (!entry.succeeded())
+				failures.add(entry);
+		}
+		return failures;
+	}
+
+	/**
+	 * Writes the manifest to a file. The files which could not be read are left
+	 * out
+	 * 
+	 * @param file
+	 *          - where the manifest is written. It is replaced if it exists
+	 * @throws IOException
+	 *           if the file cannot be written
+	 */
+	public void write(Path file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (Entry entry : entries) {
+				if (!entry.succeeded())
+					continue;
+
+				writer.write(entry.digest);
+				writer.write("  ");
+				writer.write(entry.path);
+				writer.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Reads a manifest written by {@link #write(Path)} or by sha256sum
+	 * 
+	 * @param file
+	 *          - where the manifest is read from
+	 * @return the read manifest
+	 * @throws IOException
+	 *           if the file cannot be read or is not a manifest
+	 */
+	public static HashManifest read(Path file) throws IOException {
+		ContentHasher.Algorithm algorithm = null;
+		List<Entry> entries = new ArrayList<>();
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int number = 0;
+
+			while ((line = reader.readLine()) != null) {
+				number++;
+				if (line.isEmpty())
+					continue;
+
+				int separator = line.indexOf(' ');
+				// sha256sum marks binary files with '*' instead of the second space
+				if (separator <= 0 || line.length() < separator + 3
+						|| (line.charAt(separator + 1) != ' ' && line.charAt(separator + 1) != '*'))
+					throw new IOException(file + ":" + number + ": not a manifest line");
+
+				String digest = line.substring(0, separator).toLowerCase();
+				ContentHasher.Algorithm found = ContentHasher.Algorithm.ofDigest(digest);
+
+				if (found == null)
+					throw new IOException(file + ":" + number + ": not a digest: " + digest);
+				if (algorithm != null && algorithm != found)
+					throw new IOException(file + ":" + number + ": the manifest mixes " + algorithm + " and " + found);
+
+				algorithm = found;
+				entries.add(new Entry(line.substring(separator + 2), digest));
+			}
+		}
+
+		entries.sort(null);
+		return new HashManifest(algorithm == null ? ContentHasher.Algorithm.SHA256 : algorithm, entries);
+	}
+
+	/**
+	 * The digest of a file
+	 */
+	public static class Entry implements Comparable<Entry> {
+		private final String path;
+		private final String digest;
+		private final Exception error;
+
+		Entry(String path, String digest) {
+			this.path = path;
+			this.digest = digest;
+			this.error = null;
+		}
+
+		/**
+		 * Creates the entry of a file which could not be read
+		 */
+		Entry(String path, Exception error) {
+			this.path = path;
+			this.digest = null;
+			this.error = error;
+		}
+
+		/**
+		 * Returns the absolute path of the file in the volume
+		 * 
+		 * @return the absolute path
+		 */
+		public String path() {
+			return path;
+		}
+
+		/**
+		 * Returns the digest of the contents of the file in lower case hex
+		 * 
+		 * @return the digest in hex </br>
+		 *         null - if the file could not be read
+		 */
+		public String digest() {
+			return digest;
+		}
+
+		/**
+		 * Returns why the file could not be read
+		 * 
+		 * @return the cause of the failure </br>
+		 *         null - if the file was hashed
+		 */
+		public Exception error() {
+			return error;
+		}
+
+		/**
+		 * Tests whether the file was hashed
+		 * 
+		 * @return true if the file was hashed
+		 */
+		public boolean succeeded() {
+			return error == null;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			return path.compareTo(other.path);
+		}
+
+		@Override
+		public String toString() {
+			return succeeded() ? digest + "  " + path : path + " failed: " + error;
+		}
+	}
+}
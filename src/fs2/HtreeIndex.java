@@ -0,0 +1,399 @@
+package fs2;
+
+/**
+ * Looks names up in hashed (htree) directories. The name is hashed with the
+ * hash of the directory and the seed of the super block, the index blocks are
+ * searched for the hash and only the leaf block holding it is scanned.
+ * 
+ * @author Georgi Valchanov
+ */
+class HtreeIndex {
+
+	/**
+	 * Hash versions
+	 */
+	static final int legacy = 0;
+	static final int halfMD4 = 1;
+	static final int tea = 2;
+	static final int legacyUnsigned = 3;
+	static final int halfMD4Unsigned = 4;
+	static final int teaUnsigned = 5;
+
+	/**
+	 * Offsets in the root block
+	 */
+	private static final int root_info = 24;
+	private static final int info_hash_version = 4;
+	private static final int info_length = 5;
+	private static final int info_indirect_levels = 6;
+	/**
+	 * Offset of the entries in an index node block(after an empty directory
+	 * entry)
+	 */
+	private static final int node_entries = 8;
+
+	/**
+	 * Result of a lookup which cannot use the index
+	 */
+	static final int unusable = -1;
+
+	private HtreeIndex() {
+	}
+
+	/**
+	 * Looks a name up in a hashed directory
+	 * 
+	 * @param directory
+	 *          - a directory whose inode has the index flag
+	 * @param name
+	 *          - of the searched file
+	 * @return the inode number of the file </br>
+	 *         0 - if the file is not in the directory </br>
+	 *         {@link #unusable} - if the index cannot be read, so the directory
+	 *         has to be scanned
+	 */
+	static int lookup(Ext2File directory, String name) {
+		Volume volume = directory.getVolume();
+		SuperBlock superblock = volume.getSuperBlock();
+		int blockSize = volume.getBlockSize();
+
+		long root = directory.physicalBlock(0) * blockSize;
+		if (root == 0)
+			return unusable;
+
+		long info = root + root_info;
+		int version = volume.getByteAt(info + info_hash_version) & 0xff;
+		int length = volume.getByteAt(info + info_length) & 0xff;
+		int levels = volume.getByteAt(info + info_indirect_levels) & 0xff;
+
+		if (volume.getIntAt(info) != 0 || length != 8 || levels > 2 || version > tea)
+			return unusable;
+
+		if (superblock.hasUnsignedDirectoryHash())
+			version += 3;
+
+		int hash = hash(name, version, superblock.hashSeed());
+
+		// the entries of the index node at every level and the entry followed in each
+		long[] nodes = new long[levels + 1];
+		int[] at = new int[levels + 1];
+		nodes[0] = info + length;
+
+		// walk down the index nodes to the leaf which may hold the hash
+		for (int level = 0; level < levels; level++) {
+			at[level] = findIndex(volume, nodes[level], count(volume, nodes[level]), hash);
+			long block = directory.physicalBlock(blockAt(volume, nodes[level], at[level]));
+			if (block == 0)
+				return unusable;
+			nodes[level + 1] = block * blockSize + node_entries;
+		}
+		at[levels] = findIndex(volume, nodes[levels], count(volume, nodes[levels]), hash);
+
+		// the hash may continue in the following leaves when names collide
+		while (true) {
+			long leaf = directory.physicalBlock(blockAt(volume, nodes[levels], at[levels]));
+			if (leaf == 0)
+				return unusable;
+
+			int number = scanLeaf(volume, leaf * blockSize, name);
+			if (number != 0)
+				return number;
+
+			int next = nextLeaf(directory, nodes, at, levels, hash);
+			if (next != 1)
+				return next;
+		}
+	}
+
+	/**
+	 * Moves to the leaf after the current one if it continues the hash, like
+	 * ext4_htree_next_block. When the current leaf is the last of its index node
+	 * the walk goes up to the first level with entries left, and down again
+	 * through the first entries of the nodes below it
+	 * 
+	 * @param directory
+	 *          - the indexed directory
+	 * @param nodes
+	 *          - offsets of the entries of the index node at every level
+	 * @param at
+	 *          - the entry followed at every level
+	 * @param levels
+	 *          - number of index levels below the root
+	 * @param hash
+	 *          - the searched hash
+	 * @return 1 - if the next leaf continues the hash </br>
+	 *         0 - if it does not, or there are no more leaves </br>
+	 *         {@link #unusable} - if an index node is not in the directory
+	 */
+	private static int nextLeaf(Ext2File directory, long[] nodes, int[] at, int levels, int hash) {
+		Volume volume = directory.getVolume();
+
+		int level = levels;
+		while (++at[level] >= count(volume, nodes[level])) {
+			if (level == 0)
+				return 0;
+			level--;
+		}
+
+		// the lowest bit marks an entry which continues the hash of the one before it
+		if ((volume.getIntAt(nodes[level] + at[level] * 8L) & ~1) != hash)
+			return 0;
+
+		for (; level < levels; level++) {
+			long block = directory.physicalBlock(blockAt(volume, nodes[level], at[level]));
+			if (block == 0)
+				return unusable;
+			nodes[level + 1] = block * volume.getBlockSize() + node_entries;
+			at[level + 1] = 0;
+		}
+
+		return 1;
+	}
+
+	/**
+	 * Returns the number of entries of an index node
+	 */
+	private static int count(Volume volume, long entries) {
+		return volume.getShortAt(entries + 2) & 0xffff;
+	}
+
+	/**
+	 * Returns the logical block an index entry points to
+	 */
+	private static long blockAt(Volume volume, long entries, int entry) {
+		return volume.getIntAt(entries + entry * 8L + 4) & 0xffffffffL;
+	}
+
+	/**
+	 * Finds the last index entry whose hash is not bigger than {@code hash}. The
+	 * first entry has no hash and covers everything below the second
+	 * 
+	 * @return index of the entry
+	 */
+	private static int findIndex(Volume volume, long entries, int count, int hash) {
+		int low = 1;
+		int high = count - 1;
+
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+
+			if (Integer.compareUnsigned(volume.getIntAt(entries + middle * 8L), hash) > 0)
+				high = middle - 1;
+			else
+				low = middle + 1;
+		}
+
+		return low - 1;
+	}
+
+	/**
+	 * Scans a leaf block for a name
+	 * 
+	 * @return the inode number of the file </br>
+	 *         0 - if the name is not in the block
+	 */
+	private static int scanLeaf(Volume volume, long block, String name) {
+		VolumeCounters counters = volume.counters();
+		if (counters != null)
+			counters.directoryBlocks.increment();
+
+		int offset = 0;
+
+		while (offset < volume.getBlockSize()) {
+			long entry = block + offset;
+			int length = volume.getShortAt(entry + DirEntry.rec_len) & 0xffff;
+			if (length < 8)
+				break;
+
+			int inode = volume.getIntAt(entry + DirEntry.inode_number);
+			if (inode != 0 && (volume.getByteAt(entry + DirEntry.name_len) & 0xff) == name.length()) {
+				int i = 0;
+				while (i < name.length() && (volume.getByteAt(entry + DirEntry.name + i) & 0xff) == name.charAt(i)) {
+					i++;
+				}
+
+				if (i == name.length())
+					return inode;
+			}
+
+			offset += length;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Hashes a name the way ext2 does for its directory index
+	 * 
+	 * @param name
+	 *          - to be hashed(every character is one byte)
+	 * @param version
+	 *          - of the hash
+	 * @param seed
+	 *          - the four words of the hash seed of the super block
+	 * @return the major hash of the name
+	 */
+	static int hash(String name, int version, int[] seed) {
+		byte[] bytes = new byte[name.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) name.charAt(i);
+		}
+
+		int[] buf = { 0x67452301, 0xefcdab89, 0x98badcfe, 0x10325476 };
+		if (seed != null && (seed[0] | seed[1] | seed[2] | seed[3]) != 0)
+			buf = seed.clone();
+
+		int hash;
+		switch (version) {
+		case legacy:
+		case legacyUnsigned:
+			hash = legacyHash(bytes, version == legacyUnsigned);
+			break;
+		case halfMD4:
+		case halfMD4Unsigned: {
+			int[] in = new int[8];
+			for (int p = 0; p < bytes.length; p += 32) {
+				toWords(bytes, p, version == halfMD4Unsigned, in, 8);
+				halfMD4Transform(buf, in);
+			}
+			hash = buf[1];
+			break;
+		}
+		case tea:
+		case teaUnsigned: {
+			int[] in = new int[4];
+			for (int p = 0; p < bytes.length; p += 16) {
+				toWords(bytes, p, version == teaUnsigned, in, 4);
+				teaTransform(buf, in);
+			}
+			hash = buf[0];
+			break;
+		}
+		default:
+			throw new IllegalArgumentException("unknown hash version " + version);
+		}
+
+		hash &= ~1;
+		// the biggest hash marks the end of the directory
+		if (hash == 0x7fffffff << 1)
+			hash = (0x7fffffff - 1) << 1;
+
+		return hash;
+	}
+
+	private static int legacyHash(byte[] name, boolean unsigned) {
+		int hash0 = 0x12a3fe2d;
+		int hash1 = 0x37abe8f9;
+
+		for (byte b : name) {
+			int c = unsigned ? b & 0xff : b;
+			int hash = hash1 + (hash0 ^ (c * 7152373));
+
+			if ((hash & 0x80000000) != 0)
+				hash -= 0x7fffffff;
+			hash1 = hash0;
+			hash0 = hash;
+		}
+
+		return hash0 << 1;
+	}
+
+	/**
+	 * Packs up to {@code 4 * num} bytes of the name from {@code start} into words,
+	 * padding with the length of the rest of the name
+	 */
+	private static void toWords(byte[] name, int start, boolean unsigned, int[] buf, int num) {
+		int length = name.length - start;
+		int pad = length | (length << 8);
+		pad |= pad << 16;
+
+		int val = pad;
+		int out = 0;
+		int count = Math.min(length, num * 4);
+		for (int i = 0; i < count; i++) {
+			int c = unsigned ? name[start + i] & 0xff : name[start + i];
+			val = c + (val << 8);
+
+			if (i % 4 == 3) {
+				buf[out++] = val;
+				val = pad;
+				num--;
+			}
+		}
+
+		if (--num >= 0)
+			buf[out++] = val;
+		while (--num >= 0) {
+			buf[out++] = pad;
+		}
+	}
+
+	private static void teaTransform(int[] buf, int[] in) {
+		int sum = 0;
+		int b0 = buf[0], b1 = buf[1];
+		int a = in[0], b = in[1], c = in[2], d = in[3];
+
+		for (int n = 0; n < 16; n++) {
+			sum += 0x9E3779B9;
+			b0 += ((b1 << 4) + a) ^ (b1 + sum) ^ ((b1 >>> 5) + b);
+			b1 += ((b0 << 4) + c) ^ (b0 + sum) ^ ((b0 >>> 5) + d);
+		}
+
+		buf[0] += b0;
+		buf[1] += b1;
+	}
+
+	private static final int k2 = 013240474631;
+	private static final int k3 = 015666365641;
+
+	private static int f(int x, int y, int z) {
+		return z ^ (x & (y ^ z));
+	}
+
+	private static int g(int x, int y, int z) {
+		return (x & y) + ((x ^ y) & z);
+	}
+
+	private static int h(int x, int y, int z) {
+		return x ^ y ^ z;
+	}
+
+	private static void halfMD4Transform(int[] buf, int[] in) {
+		int a = buf[0], b = buf[1], c = buf[2], d = buf[3];
+
+		// round 1
+		a = Integer.rotateLeft(a + f(b, c, d) + in[0], 3);
+		d = Integer.rotateLeft(d + f(a, b, c) + in[1], 7);
+		c = Integer.rotateLeft(c + f(d, a, b) + in[2], 11);
+		b = Integer.rotateLeft(b + f(c, d, a) + in[3], 19);
+		a = Integer.rotateLeft(a + f(b, c, d) + in[4], 3);
+		d = Integer.rotateLeft(d + f(a, b, c) + in[5], 7);
+		c = Integer.rotateLeft(c + f(d, a, b) + in[6], 11);
+		b = Integer.rotateLeft(b + f(c, d, a) + in[7], 19);
+
+		// round 2
+		a = Integer.rotateLeft(a + g(b, c, d) + in[1] + k2, 3);
+		d = Integer.rotateLeft(d + g(a, b, c) + in[3] + k2, 5);
+		c = Integer.rotateLeft(c + g(d, a, b) + in[5] + k2, 9);
+		b = Integer.rotateLeft(b + g(c, d, a) + in[7] + k2, 13);
+		a = Integer.rotateLeft(a + g(b, c, d) + in[0] + k2, 3);
+		d = Integer.rotateLeft(d + g(a, b, c) + in[2] + k2, 5);
+		c = Integer.rotateLeft(c + g(d, a, b) + in[4] + k2, 9);
+		b = Integer.rotateLeft(b + g(c, d, a) + in[6] + k2, 13);
+
+		// round 3
+		a = Integer.rotateLeft(a + h(b, c, d) + in[3] + k3, 3);
+		d = Integer.rotateLeft(d + h(a, b, c) + in[7] + k3, 9);
+		c = Integer.rotateLeft(c + h(d, a, b) + in[2] + k3, 11);
+		b = Integer.rotateLeft(b + h(c, d, a) + in[6] + k3, 15);
+		a = Integer.rotateLeft(a + h(b, c, d) + in[1] + k3, 3);
+		d = Integer.rotateLeft(d + h(a, b, c) + in[5] + k3, 9);
+		c = Integer.rotateLeft(c + h(d, a, b) + in[0] + k3, 11);
+		b = Integer.rotateLeft(b + h(c, d, a) + in[4] + k3, 15);
+
+		buf[0] += a;
+		buf[1] += b;
+		buf[2] += c;
+		buf[3] += d;
+	}
+}
@@ -1,15 +1,13 @@
 package fs2;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.Iterator;
 
 public class Inode {
 
 	/**
-	 * Size of an inode in bytes
+	 * Size of an inode in bytes in revision 0 volumes. Later revisions record the
+	 * size in the super block, see {@link Volume#getInodeSize()}
 	 */
 	public static final int size = 128;
 
@@ -25,6 +23,7 @@ public class Inode {
 	private static final int i_dtime = 20;
 	private static final int i_gid = 24;
 	private static final int i_links_count = 26;
+	private static final int i_flags = 32;
 	private static final int i_block = 40;
 	private static final int first_ind = 88;
 	private static final int i_size_u = 108;
@@ -42,21 +41,21 @@ public class Inode {
 	 */
 	private long sizeB;
 	/**
-	 * Last access time
+	 * Last access time(seconds since the epoch)
 	 */
-	private Date atime;
+	private long atime;
 	/**
-	 * Last time the inode changed
+	 * Last time the inode changed(seconds since the epoch)
 	 */
-	private Date ctime;
+	private long ctime;
 	/**
-	 * Last time that file contents changed
+	 * Last time that file contents changed(seconds since the epoch)
 	 */
-	private Date mtime;
+	private long mtime;
 	/**
-	 * Time the file was deleted
+	 * Time the file was deleted(seconds since the epoch)
 	 */
-	private Date dtime;
+	private long dtime;
 	/**
 	 * Group ID of owner
 	 */
@@ -64,7 +63,16 @@ public class Inode {
 	/**
 	 * Count of hard links to file
 	 */
-	private short link_count;
+	private int link_count;
+	/**
+	 * File flags
+	 */
+	private int flags;
+
+	/**
+	 * Flag of a directory with a hashed index
+	 */
+	private static final int indexFlag = 0x1000;
 
 	/**
 	 * The volume in which this inode is located
@@ -73,25 +81,55 @@ public class Inode {
 	/**
 	 * holds the offset from which the data of this inode is located in the volume
 	 */
-	private int offset;
+	private long offset;
+	/**
+	 * Number of the inode(0 when it is not known)
+	 */
+	private int number;
+
+	public Inode(Volume vol, long offset) {
+		this(vol, 0, offset);
+	}
 
-	public Inode(Volume vol, int offset) {
+	/**
+	 * Creates a new inode
+	 * 
+	 * @param vol
+	 *          volume where the inode is located
+	 * @param number
+	 *          of the inode
+	 * @param offset
+	 *          the byte from which the data of the inode is written on the volume
+	 */
+	public Inode(Volume vol, int number, long offset) {
 		volume = vol;
+		this.number = number;
 		this.offset = offset;
 
-		mode = volume.getShortAt(offset + i_mode);
-		uid = volume.getShortAt(offset + i_uid);
+		mode = volume.getShortAt(offset + i_mode) & 0xffff;
+		uid = volume.getShortAt(offset + i_uid) & 0xffff;
 
 		// combines the upper and lower bits of the size
-		sizeB = (volume.getIntAt(offset + i_size_u) * (long) Math.pow(2, 32)) + volume.getIntAt(offset + i_size_l);
+		sizeB = ((long) volume.getIntAt(offset + i_size_u) << 32) | (volume.getIntAt(offset + i_size_l) & 0xffffffffL);
 
-		atime = new Date(volume.getIntAt(offset + i_atime) * 1000);
-		ctime = new Date(volume.getIntAt(offset + i_ctime) * 1000);
-		mtime = new Date(volume.getIntAt(offset + i_mtime) * 1000);
-		dtime = new Date(volume.getIntAt(offset + i_dtime) * 1000);
+		// the dates are only made when they are asked for
+		atime = volume.getIntAt(offset + i_atime) & 0xffffffffL;
+		ctime = volume.getIntAt(offset + i_ctime) & 0xffffffffL;
+		mtime = volume.getIntAt(offset + i_mtime) & 0xffffffffL;
+		dtime = volume.getIntAt(offset + i_dtime) & 0xffffffffL;
 
-		gid = volume.getShortAt(offset + i_gid);
-		link_count = volume.getShortAt(offset + i_links_count);
+		gid = volume.getShortAt(offset + i_gid) & 0xffff;
+		link_count = volume.getShortAt(offset + i_links_count) & 0xffff;
+		flags = volume.getIntAt(offset + i_flags);
+	}
+
+	/**
+	 * Returns the number of the inode
+	 * 
+	 * @return the number of the inode
+	 */
+	public int getNumber() {
+		return number;
 	}
 
 	/**
@@ -127,7 +165,7 @@ public class Inode {
 	 * @return Time of last file access
 	 */
 	public Date getI_atime() {
-		return atime;
+		return new Date(atime * 1000);
 	}
 
 	/**
@@ -136,7 +174,7 @@ public class Inode {
 	 * @return Time that inode last changed
 	 */
 	public Date getI_ctime() {
-		return ctime;
+		return new Date(ctime * 1000);
 	}
 
 	/**
@@ -145,7 +183,7 @@ public class Inode {
 	 * @return Time that file contents last changed
 	 */
 	public Date getI_mtime() {
-		return mtime;
+		return new Date(mtime * 1000);
 	}
 
 	/**
@@ -154,7 +192,7 @@ public class Inode {
 	 * @return Time of file deletion
 	 */
 	public Date getI_dtime() {
-		return dtime;
+		return new Date(dtime * 1000);
 	}
 
 	/**
@@ -176,44 +214,73 @@ public class Inode {
 	}
 
 	/**
-	 * Returns an array of all the block numbers of data blocks holding the contents
+	 * Returns the file flags
+	 * 
+	 * @return the file flags
+	 */
+	public int getI_flags() {
+		return flags;
+	}
+
+	/**
+	 * Tests whether this is a directory with a hashed index
+	 * 
+	 * @return true if this is a directory with a hashed index
+	 */
+	public boolean hasHashedIndex() {
+		return (mode & 0xF000) == 0x4000 && (flags & indexFlag) != 0;
+	}
+
+	/**
+	 * Returns a map of all the block numbers of data blocks holding the contents
 	 * of the inode's file
 	 * 
-	 * @return array of content block numbers
+	 * @return map of content block numbers
 	 */
-	public Integer[] getBlockPointers() {
+	public ExtentMap getBlockPointers() {
+		Object event = Ext2Events.beginBlockPointers();
 		// will hold all the numbers of block that hold the contents of a file
-		ArrayList<Integer> blockpointers = new ArrayList<>();
+		ExtentMap blockpointers = new ExtentMap();
 		// how many blocks the file is made up of
-		long BlocksPointersTogo = getI_size() / Volume.blockSize + (getI_size() % Volume.blockSize == 0 ? 0 : 1);
+		int blockSize = volume.getBlockSize();
+		long BlocksPointersTogo = getI_size() / blockSize + (getI_size() % blockSize == 0 ? 0 : 1);
 
 		// get first 12 block
-		for (int i = 0; i < 12; i++) {
+		for (int i = 0; i < 12 && BlocksPointersTogo > 0; i++) {
 
-			blockpointers.add(volume.getIntAt(offset + i_block + i * 4));
+			blockpointers.append(volume.getIntAt(offset + i_block + i * 4));
 
-			if (--BlocksPointersTogo <= 0)
-				break;
+			BlocksPointersTogo--;
 		}
 
 		// get the block pointers from the indirect pointers
 		for (int i = 1; i <= 3 && BlocksPointersTogo > 0; i++) {
 			// calculate how many pointers to get from this indirect pointer(all of the
 			// pointers or the rest of needed)
-			int toget = (int) Math.pow(256, i);
-			toget = (int) Math.min(toget, BlocksPointersTogo);
+			long toget = Math.min(pointersUnder(i), BlocksPointersTogo);
 
-			ArrayList<Integer> nums = indirectPointers(get_indirect(i), i, toget);
-			blockpointers.addAll(nums);
+			indirectPointers(get_indirect(i), i, toget, blockpointers);
 
 			BlocksPointersTogo -= toget;
 		}
 
-		// Convert to array
-		Integer[] blockPointers = new Integer[blockpointers.size()];
-		blockpointers.toArray(blockPointers);
+		Ext2Events.endBlockPointers(event, number, blockpointers);
+		return blockpointers;
+	}
 
-		return blockPointers;
+	/**
+	 * Returns the number of data blocks reachable through an indirect pointer
+	 * 
+	 * @param level
+	 *          of indirection of the pointer
+	 * @return the number of data blocks reachable through the pointer
+	 */
+	private long pointersUnder(int level) {
+		long pointers = 1;
+		for (int i = 0; i < level; i++) {
+			pointers *= volume.getBlockSize() / 4;
+		}
+		return pointers;
 	}
 
 	/**
@@ -228,7 +295,29 @@ public class Inode {
 	}
 
 	/**
-	 * Returns data block numbers from an indirect pointer.
+	 * Returns the value of an indirect pointer
+	 * 
+	 * @param level
+	 *          of indirection(1 to 3)
+	 * @return the value of an indirect pointer
+	 */
+	int getIndirectPointer(int level) {
+		return get_indirect(level);
+	}
+
+	/**
+	 * Returns the value of one of the 12 direct pointers
+	 * 
+	 * @param number
+	 *          of the pointer(0 to 11)
+	 * @return the value of the pointer
+	 */
+	int getDirectPointer(int number) {
+		return volume.getIntAt(offset + i_block + number * 4);
+	}
+
+	/**
+	 * Adds the data block numbers of an indirect pointer to a map.
 	 * 
 	 * @param block
 	 *          number(a value held by an indirect pointer)
@@ -236,63 +325,38 @@ public class Inode {
 	 *          of in direction of the pointer
 	 * @param blockstoget
 	 *          number of blocks the method needs to get before stopping
-	 * @return Returns data block numbers
+	 * @param map
+	 *          where the block numbers are added
 	 */
-	private ArrayList<Integer> indirectPointers(int block, int level, int blockstoget) {
-		// if the pointer points to a hole just give it zeros to avoid the recursion
+	private void indirectPointers(int block, int level, long blockstoget, ExtentMap map) {
+		// if the pointer points to a hole the whole range is one hole run
 		if (block == 0) {
-
-			Integer[] stuff = new Integer[blockstoget];
-			Arrays.fill(stuff, 0);
-
-			return new ArrayList<>(Arrays.asList(stuff));
+			map.append(0, (int) blockstoget);
+			return;
 		}
 
-		if (level == 1) {
-			block *= Volume.blockSize;
-			// hold the block numbers that point to data block with the file's contents
-			ArrayList<Integer> pointers = new ArrayList<>();
-
-			// you start reading at block and you offset by 4 every time
-			// because each pointer is 4 bytes
-			for (int i = 0; i < Volume.blockSize; i += 4) {
+		long address = (block & 0xffffffffL) * volume.getBlockSize();
 
-				// get the block number
-				int blockNumber = volume.getIntAt(block + i);
+		// you start reading at block and you offset by 4 every time
+		// because each pointer is 4 bytes
+		for (int i = 0; i < volume.getBlockSize() && blockstoget > 0; i += 4) {
 
-				pointers.add(blockNumber);
+			// get the block number
+			int blockNumber = volume.getIntAt(address + i);
 
-				if ((--blockstoget) <= 0)
-					break;
+			if (level == 1) {
+				map.append(blockNumber);
+				blockstoget--;
 			}
+			else {
+				// calculate how many pointers to get from the block whose number is
+				// blockNumber
+				long toget = Math.min(blockstoget, pointersUnder(level - 1));
 
-			return pointers;
-		}
-		else {
-			// get block numbers in this level
-			ArrayList<Integer> thisLevel = indirectPointers(block, 1, 256);
-
-			// this holds all the blocks numbers of the higher levels of indirections
-			ArrayList<Integer> fromHigherLevel = new ArrayList<>();
-
-			// you get the the block of pointers for each block number in thisLevel
-			for (Iterator<Integer> i = thisLevel.iterator(); i.hasNext();) {
-				int blockNumber = i.next();
-
-				// calculate how many pointers to get from this indirect pointer
-				int toget = (int) Math.pow(256, level - 1);
-				toget = (int) Math.min(blockstoget, toget);
-
-				// get the pointers in the block whose number is blockNumber
-				ArrayList<Integer> bunch = indirectPointers(blockNumber, level - 1, toget);
-				fromHigherLevel.addAll(bunch);
+				indirectPointers(blockNumber, level - 1, toget, map);
 
 				blockstoget -= toget;
-				if (blockstoget <= 0)
-					break;
 			}
-
-			return fromHigherLevel;
 		}
 	}
 
@@ -304,11 +368,34 @@ public class Inode {
 	 * @return a string of the inode's information in Unix like format
 	 */
 	public String fileInfo(String name) {
+		return fileInfo(mode, link_count, uid, gid, sizeB, atime, name);
+	}
+
+	/**
+	 * Formats the information of an inode in Unix like format
+	 * 
+	 * @param mode
+	 *          file type and access rights
+	 * @param links
+	 *          hard links count
+	 * @param uid
+	 *          owner identifier
+	 * @param gid
+	 *          group identifier
+	 * @param size
+	 *          file length in bytes
+	 * @param atime
+	 *          time of last file access in seconds since the epoch
+	 * @param name
+	 *          name of the file
+	 * @return a string of the inode's information in Unix like format
+	 */
+	static String fileInfo(int mode, int links, int uid, int gid, long size, long atime, String name) {
 		StringBuilder builder = new StringBuilder();
-		builder.append((mode & 0x4000) > 0 ? 'd' : '-');
+		builder.append((mode & 0xF000) == 0x4000 ? 'd' : '-');
 
 		// checking the access permissions
-		int access = this.getI_mode() & 0x1FF;
+		int access = mode & 0x1FF;
 		char[] rwx = { 'r', 'w', 'x' };
 		int flagchecker = 0x100;
 
@@ -317,12 +404,12 @@ public class Inode {
 			flagchecker >>= 1;
 		}
 
-		builder.append(" " + getI_links_count());
-		builder.append(" " + getI_uid());
-		builder.append(" " + getI_gid());
+		builder.append(" " + links);
+		builder.append(" " + uid);
+		builder.append(" " + gid);
 
-		builder.append(" " + getI_size());
-		builder.append(" " + new SimpleDateFormat("MMM dd HH:mm").format(getI_atime()));
+		builder.append(" " + size);
+		builder.append(" " + new SimpleDateFormat("MMM dd HH:mm").format(new Date(atime * 1000)));
 		builder.append(" " + name);
 
 		return builder.toString();
@@ -334,6 +421,6 @@ public class Inode {
 	 * @return
 	 */
 	byte[] getBytes() {
-		return volume.getBytes(offset, Volume.blockSize);
+		return volume.getBytes(offset, volume.getInodeSize());
 	}
 }
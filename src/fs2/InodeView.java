@@ -0,0 +1,272 @@
+package fs2;
+
+import java.time.Instant;
+
+/**
+ * A light view of an inode. Unlike {@link Inode} nothing is decoded up front:
+ * every field is read from the image when it is asked for. A view can be moved
+ * to another inode, so a scan over many inodes can reuse one view instead of
+ * allocating an {@link Inode} for each of them
+ * 
+ * @author Georgi Valchanov
+ */
+public final class InodeView {
+
+	/**
+	 * Offsets
+	 */
+	private static final int i_mode = 0;
+	private static final int i_uid = 2;
+	private static final int i_size_l = 4;
+	private static final int i_atime = 8;
+	private static final int i_ctime = 12;
+	private static final int i_mtime = 16;
+	private static final int i_dtime = 20;
+	private static final int i_gid = 24;
+	private static final int i_links_count = 26;
+	private static final int i_blocks = 28;
+	private static final int i_flags = 32;
+	private static final int i_size_u = 108;
+
+	/**
+	 * Flag of a directory with a hashed index
+	 */
+	private static final int indexFlag = 0x1000;
+
+	/**
+	 * The volume in which the inode is located
+	 */
+	private final Volume volume;
+	/**
+	 * The offset from which the data of the inode is located in the volume
+	 */
+	private long offset;
+	/**
+	 * Number of the inode(0 when the view is not on an inode)
+	 */
+	private int number;
+
+	/**
+	 * Creates a view which is not on any inode yet
+	 * 
+	 * @param volume
+	 *          volume where the inodes are located
+	 */
+	public InodeView(Volume volume) {
+		this.volume = volume;
+	}
+
+	/**
+	 * Creates a view of an inode
+	 * 
+	 * @param volume
+	 *          volume where the inode is located
+	 * @param number
+	 *          of the inode
+	 */
+	public InodeView(Volume volume, int number) {
+		this(volume);
+		moveTo(number);
+	}
+
+	/**
+	 * Moves the view to another inode
+	 * 
+	 * @param number
+	 *          of the inode
+	 * @return this view
+	 */
+	public InodeView moveTo(int number) {
+		return moveTo(number, volume.inodeOffset(number));
+	}
+
+	/**
+	 * Moves the view to an inode whose offset is already known
+	 * 
+	 * @param number
+	 *          of the inode
+	 * @param offset
+	 *          the byte from which the data of the inode is written on the volume
+	 * @return this view
+	 */
+	InodeView moveTo(int number, long offset) {
+		this.number = number;
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * Returns the number of the inode
+	 * 
+	 * @return the number of the inode
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Returns the file type and access rights
+	 * 
+	 * @return file type and access rights
+	 */
+	public int getMode() {
+		return volume.getShortAt(offset + i_mode) & 0xffff;
+	}
+
+	/**
+	 * Returns the owner identifier
+	 * 
+	 * @return owner identifier
+	 */
+	public int getUid() {
+		return volume.getShortAt(offset + i_uid) & 0xffff;
+	}
+
+	/**
+	 * Returns the group identifier
+	 * 
+	 * @return group identifier
+	 */
+	public int getGid() {
+		return volume.getShortAt(offset + i_gid) & 0xffff;
+	}
+
+	/**
+	 * Returns the file length in bytes
+	 * 
+	 * @return file length in bytes
+	 */
+	public long getSize() {
+		return ((long) volume.getIntAt(offset + i_size_u) << 32) | (volume.getIntAt(offset + i_size_l) & 0xffffffffL);
+	}
+
+	/**
+	 * Returns the number of 512 byte sectors allocated to the file
+	 * 
+	 * @return number of allocated sectors
+	 */
+	public long getSectors() {
+		return volume.getIntAt(offset + i_blocks) & 0xffffffffL;
+	}
+
+	/**
+	 * Returns the hard links count
+	 * 
+	 * @return number of hard links
+	 */
+	public int getLinksCount() {
+		return volume.getShortAt(offset + i_links_count) & 0xffff;
+	}
+
+	/**
+	 * Returns the file flags
+	 * 
+	 * @return the file flags
+	 */
+	public int getFlags() {
+		return volume.getIntAt(offset + i_flags);
+	}
+
+	/**
+	 * Returns the time of last file access
+	 * 
+	 * @return seconds since the epoch
+	 */
+	public long getAccessTime() {
+		return seconds(i_atime);
+	}
+
+	/**
+	 * Returns the time that the inode last changed
+	 * 
+	 * @return seconds since the epoch
+	 */
+	public long getChangeTime() {
+		return seconds(i_ctime);
+	}
+
+	/**
+	 * Returns the time that the file contents last changed
+	 * 
+	 * @return seconds since the epoch
+	 */
+	public long getModificationTime() {
+		return seconds(i_mtime);
+	}
+
+	/**
+	 * Returns the time of file deletion
+	 * 
+	 * @return seconds since the epoch(0 if the file is not deleted)
+	 */
+	public long getDeletionTime() {
+		return seconds(i_dtime);
+	}
+
+	/**
+	 * Returns the time of last file access
+	 * 
+	 * @return time of last file access
+	 */
+	public Instant getAccessInstant() {
+		return Instant.ofEpochSecond(getAccessTime());
+	}
+
+	/**
+	 * Returns the time that the file contents last changed
+	 * 
+	 * @return time that the file contents last changed
+	 */
+	public Instant getModificationInstant() {
+		return Instant.ofEpochSecond(getModificationTime());
+	}
+
+	/**
+	 * Tests whether the inode is a directory
+	 * 
+	 * @return true if the inode is a directory
+	 */
+	public boolean isDirectory() {
+		return (getMode() & 0xF000) == 0x4000;
+	}
+
+	/**
+	 * Tests whether the inode is a regular file
+	 * 
+	 * @return true if the inode is a regular file
+	 */
+	public boolean isFile() {
+		return (getMode() & 0xF000) == 0x8000;
+	}
+
+	/**
+	 * Tests whether this is a directory with a hashed index
+	 * 
+	 * @return true if this is a directory with a hashed index
+	 */
+	public boolean hasHashedIndex() {
+		return isDirectory() && (getFlags() & indexFlag) != 0;
+	}
+
+	/**
+	 * Returns a string of the inode's information in Unix like format
+	 * 
+	 * @param name
+	 *          name of the file
+	 * @return a string of the inode's information in Unix like format
+	 */
+	public String fileInfo(String name) {
+		return Inode.fileInfo(getMode(), getLinksCount(), getUid(), getGid(), getSize(), getAccessTime(), name);
+	}
+
+	/**
+	 * Reads an unsigned 32 bit time field
+	 * 
+	 * @param field
+	 *          offset of the field in the inode
+	 * @return seconds since the epoch
+	 */
+	private long seconds(int field) {
+		return volume.getIntAt(offset + field) & 0xffffffffL;
+	}
+}
@@ -0,0 +1,17 @@
+package fs2;
+
+/**
+ * Visits the allocated inodes found by {@link Volume#scanInodes(InodeVisitor)}
+ * 
+ * @author Georgi Valchanov
+ *
+ */
+@FunctionalInterface
+public interface InodeVisitor {
+
+	/**
+	 * Visits an inode.
+	 * @param inode a view of the visited inode. The view is moved to the next inode after the call, so it must not be kept.
+	 */
+	void visit(InodeView inode);
+}
@@ -7,6 +7,11 @@ import java.nio.ByteOrder;
 import util.Utils;
 
 public class LittleEndianBuffer {
+	/**
+	 * Size of the blocks read by {@link #readBlock()}
+	 */
+	private static final int defaultBlockSize = 1024;
+
 	private ByteBuffer byteBuffer;
 	// private byte[] byteArray;
 	private int currentByte;
@@ -17,7 +22,7 @@ public class LittleEndianBuffer {
 		byteBuffer = ByteBuffer.wrap(stream);
 		byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
 
-		this.blocksize = Volume.blockSize;
+		this.blocksize = defaultBlockSize;
 		currentByte = 0;
 	}
 
@@ -25,7 +30,7 @@ public class LittleEndianBuffer {
 		byteBuffer = ByteBuffer.allocate(capacity);
 		byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
 
-		this.blocksize = Volume.blockSize;
+		this.blocksize = defaultBlockSize;
 		currentByte = 0;
 	}
 
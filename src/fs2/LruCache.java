@@ -0,0 +1,107 @@
+package fs2;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size bounded cache which evicts the least recently used entry when it is
+ * full. It counts its hits, misses and evictions. All the methods are
+ * synchronized so one cache can be shared by several reader threads
+ * 
+ * @param <K>
+ *          type of the keys
+ * @param <V>
+ *          type of the cached values
+ */
+class LruCache<K, V> {
+
+	/**
+	 * Maximum number of entries held by the cache
+	 */
+	private final int capacity;
+
+	/**
+	 * Holds the entries in access order, so the eldest entry is the least recently
+	 * used one
+	 */
+	private final LinkedHashMap<K, V> entries;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates a new cache
+	 * 
+	 * @param capacity
+	 *          maximum number of entries held by the cache. A capacity of 0 turns
+	 *          the cache off
+	 */
+	LruCache(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("negative cache capacity: " + capacity);
+
+		this.capacity = capacity;
+		entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				if (size() > LruCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the value mapped to {@code key}
+	 * 
+	 * @param key
+	 *          of the value
+	 * @return the cached value </br>
+	 *         null - if the key is not in the cache
+	 */
+	synchronized V get(K key) {
+		V value = entries.get(key);
+
+		if (value == null)
+			misses++;
+		else
+			hits++;
+
+		return value;
+	}
+
+	/**
+	 * Puts a value in the cache, evicting the least recently used entry if the
+	 * cache is full
+	 * 
+	 * @param key
+	 *          of the value
+	 * @param value
+	 *          to be cached
+	 */
+	synchronized void put(K key, V value) {
+		if (capacity > 0)
+			entries.put(key, value);
+	}
+
+	/**
+	 * Removes all the entries from the cache. The counters are kept
+	 */
+	synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Returns a snapshot of the counters of this cache
+	 * 
+	 * @return a snapshot of the counters of this cache
+	 */
+	synchronized CacheStats stats() {
+		return new CacheStats(capacity, entries.size(), hits, misses, evictions);
+	}
+}
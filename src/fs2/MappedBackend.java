@@ -0,0 +1,199 @@
+package fs2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Reads an image through memory maps. The image is mapped in segments and its
+ * pages are only loaded by the OS when they are touched
+ * 
+ * @author Georgi Valchanov
+ */
+class MappedBackend implements VolumeBackend {
+
+	/**
+	 * Every segment of the image is mapped separately, because a single
+	 * {@link MappedByteBuffer} cannot be larger than 2 GB
+	 */
+	private static final int segmentShift = 30;
+	private static final long segmentSize = 1L << segmentShift;
+	private static final long segmentMask = segmentSize - 1;
+
+	/**
+	 * The channel through which the image is mapped
+	 */
+	private final FileChannel channel;
+	/**
+	 * The mapped segments of the image
+	 */
+	private final MappedByteBuffer[] segments;
+	/**
+	 * Size of the image in bytes
+	 */
+	private final long length;
+
+	/**
+	 * Maps the whole image as a sequence of read only segments
+	 * 
+	 * @param channel
+	 *          - open on the image. It is closed with the backend
+	 * @throws IOException
+	 *           when a segment cannot be mapped
+	 */
+	MappedBackend(FileChannel channel) throws IOException {
+		this.channel = channel;
+		length = channel.size();
+		segments = new MappedByteBuffer[(int) ((length + segmentMask) >>> segmentShift)];
+
+		for (int i = 0; i < segments.length; i++) {
+			long start = i * segmentSize;
+
+			segments[i] = channel.map(MapMode.READ_ONLY, start, Math.min(segmentSize, length - start));
+			segments[i].order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public byte getByte(long offset) {
+		return segments[(int) (offset >>> segmentShift)].get((int) (offset & segmentMask));
+	}
+
+	@Override
+	public short getShort(long offset) {
+		MappedByteBuffer segment = segments[(int) (offset >>> segmentShift)];
+		int start = (int) (offset & segmentMask);
+
+		if (start + 2 <= segment.limit())
+			return segment.getShort(start);
+
+		// the value is split between two segments
+		return (short) ((getByte(offset) & 0xff) | (getByte(offset + 1) << 8));
+	}
+
+	@Override
+	public int getInt(long offset) {
+		MappedByteBuffer segment = segments[(int) (offset >>> segmentShift)];
+		int start = (int) (offset & segmentMask);
+
+		if (start + 4 <= segment.limit())
+			return segment.getInt(start);
+
+		// the value is split between two segments
+		return (getShort(offset) & 0xffff) | (getShort(offset + 2) << 16);
+	}
+
+	@Override
+	public void copy(long offset, byte[] array, int startArray, int length) {
+		checkRange(offset, length);
+		while (length > 0) {
+			MappedByteBuffer segment = segments[(int) (offset >>> segmentShift)];
+			int start = (int) (offset & segmentMask);
+
+			// copy up to the end of the segment at most
+			int chunk = Math.min(length, segment.limit() - start);
+
+			// a duplicate has its own position so the shared segment is never moved
+			ByteBuffer view = segment.duplicate();
+			view.position(start);
+			view.get(array, startArray, chunk);
+
+			offset += chunk;
+			startArray += chunk;
+			length -= chunk;
+		}
+	}
+
+	@Override
+	public void copy(long offset, ByteBuffer dst, int length) {
+		checkRange(offset, length);
+		while (length > 0) {
+			MappedByteBuffer segment = segments[(int) (offset >>> segmentShift)];
+			int start = (int) (offset & segmentMask);
+
+			// copy up to the end of the segment at most
+			int chunk = Math.min(length, segment.limit() - start);
+
+			ByteBuffer view = segment.duplicate();
+			view.limit(start + chunk);
+			view.position(start);
+			dst.put(view);
+
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+
+	/**
+	 * Throws if a range of bytes does not lie within the image. Without it a copy
+	 * past the end would find no bytes left in the last segment and never end
+	 * 
+	 * @param offset
+	 *          - byte in the image from which the range starts
+	 * @param length
+	 *          - number of bytes in the range
+	 */
+	private void checkRange(long offset, int length) {
+		if (offset < 0 || offset + length > this.length)
+			throw new UncheckedIOException(
+					new EOFException("read past the end of the image at " + Math.max(offset, this.length)));
+	}
+
+	@Override
+	public void transferTo(long offset, long count, WritableByteChannel target) throws IOException {
+		transfer(channel, offset, count, target);
+	}
+
+	@Override
+	public CacheStats stats() {
+		return null;
+	}
+
+	/**
+	 * Releases the channel of the image. The mapped segments stay valid until they
+	 * are garbage collected
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Transfers bytes of a file channel to another channel, without copying them
+	 * through the Java heap
+	 * 
+	 * @param channel
+	 *          - the channel of the image
+	 * @param offset
+	 *          - byte in the image from which the transfer starts
+	 * @param count
+	 *          - number of bytes to transfer
+	 * @param target
+	 *          - the channel where the bytes are written
+	 * @throws IOException
+	 *           if the bytes cannot be read or written
+	 */
+	static void transfer(FileChannel channel, long offset, long count, WritableByteChannel target)
+			throws IOException {
+		while (count > 0) {
+			long transferred = channel.transferTo(offset, count, target);
+
+			if (transferred <= 0)
+				throw new IOException("the volume could not transfer to the target channel");
+
+			offset += transferred;
+			count -= transferred;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package fs2;
+
+/**
+ * A match of {@link Volume#search(String, SearchOptions)}: where it was found
+ * and the bytes around it
+ * 
+ * @author Georgi Valchanov
+ */
+public class SearchHit {
+
+	private final String path;
+	private final long offset;
+	private final int length;
+	private final long contextOffset;
+	private final byte[] context;
+
+	SearchHit(String path, long offset, int length, long contextOffset, byte[] context) {
+		this.path = path;
+		this.offset = offset;
+		this.length = length;
+		this.contextOffset = contextOffset;
+		this.context = context;
+	}
+
+	/**
+	 * Returns the absolute path of the file in the volume
+	 * 
+	 * @return the absolute path
+	 */
+	public String path() {
+		return path;
+	}
+
+	/**
+	 * Returns the offset of the match in the file
+	 * 
+	 * @return the offset of the first byte of the match
+	 */
+	public long offset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the length of the match
+	 * 
+	 * @return number of matched bytes
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the match with the bytes around it
+	 * 
+	 * @return the bytes of the file from {@link #contextOffset()}
+	 */
+	public byte[] context() {
+		return context.clone();
+	}
+
+	/**
+	 * Returns the offset of the context in the file
+	 * 
+	 * @return the offset of the first byte of the context
+	 */
+	public long contextOffset() {
+		return contextOffset;
+	}
+
+	/**
+	 * Returns the context as text. Bytes which are not printable ASCII are shown
+	 * as dots
+	 * 
+	 * @return the context as text
+	 */
+	public String snippet() {
+		StringBuilder builder = new StringBuilder(context.length);
+		for (byte b : context) {
+			builder.append(b >= 0x20 && b < 0x7f ? (char) b : '.');
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return path + ":" + offset + ": " + snippet();
+	}
+}
@@ -0,0 +1,129 @@
+package fs2;
+
+/**
+ * How {@link Volume#search(String, SearchOptions)} matches its pattern. The
+ * setters return the options, so they can be chained
+ * 
+ * @author Georgi Valchanov
+ */
+public class SearchOptions {
+
+	private boolean regex;
+	private boolean ignoreCase;
+	private int context = 32;
+	private int maxMatchLength = 1024;
+	private int maxHitsPerFile = Integer.MAX_VALUE;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Makes the pattern a regular expression rather than a literal. The
+	 * expression is matched against the bytes of the files taken as ISO-8859-1
+	 * characters, one character per byte
+	 * 
+	 * @param regex
+	 *          - whether the pattern is a regular expression
+	 * @return these options
+	 */
+	public SearchOptions regex(boolean regex) {
+		this.regex = regex;
+		return this;
+	}
+
+	/**
+	 * Makes the ASCII letters of the pattern match either case
+	 * 
+	 * @param ignoreCase
+	 *          - whether the case of letters is ignored
+	 * @return these options
+	 */
+	public SearchOptions ignoreCase(boolean ignoreCase) {
+		this.ignoreCase = ignoreCase;
+		return this;
+	}
+
+	/**
+	 * Sets the number of bytes before and after a match that are reported with
+	 * it
+	 * 
+	 * @param context
+	 *          - number of bytes on each side of a match
+	 * @return these options
+	 */
+	public SearchOptions context(int context) {
+		if (context < 0)
+			throw new IllegalArgumentException("negative context: " + context);
+
+		this.context = context;
+		return this;
+	}
+
+	/**
+	 * Sets the length of the longest match of a regular expression. Matches are
+	 * found across the blocks of a file as long as they are not longer
+	 * 
+	 * @param maxMatchLength
+	 *          - the longest match in bytes
+	 * @return these options
+	 */
+	public SearchOptions maxMatchLength(int maxMatchLength) {
+		if (maxMatchLength <= 0 || maxMatchLength > ContentSearch.bufferSize)
+			throw new IllegalArgumentException("the longest match must be between 1 and " + ContentSearch.bufferSize);
+
+		this.maxMatchLength = maxMatchLength;
+		return this;
+	}
+
+	/**
+	 * Sets the number of matches after which a file is no longer searched
+	 * 
+	 * @param maxHitsPerFile
+	 *          - number of matches reported for each file
+	 * @return these options
+	 */
+	public SearchOptions maxHitsPerFile(int maxHitsPerFile) {
+		if (maxHitsPerFile <= 0)
+			throw new IllegalArgumentException("the number of matches must be positive: " + maxHitsPerFile);
+
+		this.maxHitsPerFile = maxHitsPerFile;
+		return this;
+	}
+
+	/**
+	 * Sets the number of files searched at the same time
+	 * 
+	 * @param parallelism
+	 *          - number of worker threads
+	 * @return these options
+	 */
+	public SearchOptions parallelism(int parallelism) {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	boolean isRegex() {
+		return regex;
+	}
+
+	boolean isIgnoreCase() {
+		return ignoreCase;
+	}
+
+	int context() {
+		return context;
+	}
+
+	int maxMatchLength() {
+		return maxMatchLength;
+	}
+
+	int maxHitsPerFile() {
+		return maxHitsPerFile;
+	}
+
+	int parallelism() {
+		return parallelism;
+	}
+}
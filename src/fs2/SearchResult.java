@@ -0,0 +1,55 @@
+package fs2;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of {@link Volume#search(String, SearchOptions)}: the matches and
+ * the files which could not be read
+ * 
+ * @author Georgi Valchanov
+ */
+public class SearchResult {
+
+	private final List<SearchHit> hits;
+	private final Map<String, Exception> failures;
+
+	SearchResult(List<SearchHit> hits, Map<String, Exception> failures) {
+		this.hits = Collections.unmodifiableList(hits);
+		this.failures = Collections.unmodifiableMap(failures);
+	}
+
+	/**
+	 * Returns the matches, sorted by path and offset
+	 * 
+	 * @return the matches
+	 */
+	public List<SearchHit> hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the files which could not be read, and why. Matches in them may be
+	 * missing from {@link #hits()}
+	 * 
+	 * @return the errors of the skipped files by their absolute paths, sorted
+	 */
+	public Map<String, Exception> failures() {
+		return failures;
+	}
+
+	/**
+	 * Tests whether every file was searched
+	 * 
+	 * @return true if no file was skipped
+	 */
+	public boolean isComplete() {
+		return failures.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return hits.size() + " hits" + (isComplete() ? "" : ", " + failures.size() + " files could not be read");
+	}
+}
@@ -6,10 +6,52 @@ public class SuperBlock {
 	 */
 	private static final int numInodesFileSys = 0;
 	private static final int numBlocksFileSys = 4;
+	private static final int firstDataBlock = 20;
+	private static final int logBlockSize = 24;
 	private static final int numBlocksGroup = 32;
 	private static final int numInodesGroup = 40;
+	private static final int magicNumber = 56;
+	private static final int revLevel = 76;
 	private static final int inodeSize = 88;
+	private static final int featureCompat = 92;
+	private static final int featureIncompat = 96;
+	private static final int featureRoCompat = 100;
 	private static final int volLabel = 120;
+	private static final int hashSeed = 236;
+	private static final int flags = 352;
+
+	/**
+	 * The magic number of an ext2 super block
+	 */
+	public static final int magic = 0xEF53;
+	/**
+	 * Size of an inode in revision 0 volumes
+	 */
+	private static final int oldInodeSize = 128;
+	/**
+	 * Largest log of the block size over 1024 that ext2 allows(64 KB blocks)
+	 */
+	public static final int maxLogBlockSize = 6;
+
+	/**
+	 * Compatible feature flag of hashed directory indexes
+	 */
+	private static final int compatDirIndex = 0x20;
+	/**
+	 * Incompatible features this API can read: file types in directory entries
+	 * and a journal that needs recovery(it is ignored)
+	 */
+	private static final int supportedIncompat = 0x2 | 0x4;
+	/**
+	 * Read only compatible feature flags of checksummed group descriptors
+	 * (gdt_csum and metadata_csum). Only with them are the flags of a group
+	 * descriptor meaningful
+	 */
+	private static final int roCompatGroupChecksums = 0x10 | 0x400;
+	/**
+	 * Flag of directory hashes computed with unsigned characters
+	 */
+	private static final int flagUnsignedHash = 0x2;
 
 	/**
 	 * The number of inodes in the file system
@@ -31,14 +73,54 @@ public class SuperBlock {
 	 * Size of an inode in bytes
 	 */
 	private final int inodesz;
+	/**
+	 * Number of the block holding the super block
+	 */
+	private final int firstBlock;
+	/**
+	 * Log of the block size over 1024, as written on disk
+	 */
+	private final int logBlock;
+	/**
+	 * Size of a block in bytes(0 if the log is out of range)
+	 */
+	private final int blocksz;
+	/**
+	 * The magic number
+	 */
+	private final int magicnum;
+	/**
+	 * Revision level
+	 */
+	private final int revision;
+	/**
+	 * Incompatible feature flags
+	 */
+	private final int incompat;
+	/**
+	 * Read only compatible feature flags
+	 */
+	private final int roCompat;
 	/**
 	 * Label of the volume
 	 */
 	private final String label;
+	/**
+	 * Compatible feature flags
+	 */
+	private final int compat;
+	/**
+	 * Miscellaneous flags
+	 */
+	private final int sflags;
+	/**
+	 * Seed of the directory hashes
+	 */
+	private final int[] seed;
 
 	//kept only for demonstrating
 	private Volume vol;
-	private int offset;
+	private long offset;
 
 	/**
 	 * Creates Super Block data block
@@ -49,13 +131,29 @@ public class SuperBlock {
 	 *          the byte from which the data of the Super Block is written on the
 	 *          volume
 	 */
-	public SuperBlock(Volume volume, int offset) {
+	public SuperBlock(Volume volume, long offset) {
 		inodefs = volume.getIntAt(offset + numInodesFileSys);
 		blocksfs = volume.getIntAt(offset + numBlocksFileSys);
 		blocksgr = volume.getIntAt(offset + numBlocksGroup);
 		inodesgr = volume.getIntAt(offset + numInodesGroup);
-		inodesz = volume.getIntAt(offset + inodeSize);
+		firstBlock = volume.getIntAt(offset + firstDataBlock);
+		logBlock = volume.getIntAt(offset + logBlockSize);
+		blocksz = logBlock >= 0 && logBlock <= maxLogBlockSize ? 1024 << logBlock : 0;
+		magicnum = volume.getShortAt(offset + magicNumber) & 0xffff;
+		revision = volume.getIntAt(offset + revLevel);
+		incompat = volume.getIntAt(offset + featureIncompat);
+		roCompat = volume.getIntAt(offset + featureRoCompat);
+
+		// revision 0 volumes do not record the size of an inode
+		inodesz = revision == 0 ? oldInodeSize : volume.getShortAt(offset + inodeSize) & 0xffff;
 		label = volume.getStringAt(offset + volLabel, 16);
+		compat = volume.getIntAt(offset + featureCompat);
+		sflags = volume.getIntAt(offset + flags);
+
+		seed = new int[4];
+		for (int i = 0; i < seed.length; i++) {
+			seed[i] = volume.getIntAt(offset + hashSeed + i * 4);
+		}
 
 		this.offset = offset;
 		vol = volume;
@@ -106,6 +204,91 @@ public class SuperBlock {
 		return inodesz;
 	}
 
+	/**
+	 * Returns the size of a block in bytes
+	 * 
+	 * @return size of a block in bytes</br>
+	 *         0 - if {@link #logBlockSize()} is bigger than
+	 *         {@link #maxLogBlockSize}
+	 */
+	public int blockSize() {
+		return blocksz;
+	}
+
+	/**
+	 * Returns the log of the block size over 1024, as it is written in the super
+	 * block
+	 * 
+	 * @return the log of the block size over 1024
+	 */
+	public int logBlockSize() {
+		return logBlock;
+	}
+
+	/**
+	 * Returns the number of the block holding the super block(1 for 1 KB blocks
+	 * and 0 otherwise). The group descriptor table starts in the block after it
+	 * 
+	 * @return the number of the block holding the super block
+	 */
+	public int firstDataBlock() {
+		return firstBlock;
+	}
+
+	/**
+	 * Returns the revision level of the volume
+	 * 
+	 * @return the revision level of the volume
+	 */
+	public int revision() {
+		return revision;
+	}
+
+	/**
+	 * Returns the compatible feature flags
+	 * 
+	 * @return the compatible feature flags
+	 */
+	public int compatibleFeatures() {
+		return compat;
+	}
+
+	/**
+	 * Returns the incompatible feature flags
+	 * 
+	 * @return the incompatible feature flags
+	 */
+	public int incompatibleFeatures() {
+		return incompat;
+	}
+
+	/**
+	 * Returns the read only compatible feature flags
+	 * 
+	 * @return the read only compatible feature flags
+	 */
+	public int readOnlyCompatibleFeatures() {
+		return roCompat;
+	}
+
+	/**
+	 * Tests whether the super block has the ext2 magic number
+	 * 
+	 * @return true if the super block has the ext2 magic number
+	 */
+	public boolean isValid() {
+		return magicnum == magic;
+	}
+
+	/**
+	 * Returns the incompatible features of the volume that this API cannot read
+	 * 
+	 * @return the unsupported incompatible feature flags(0 if all are supported)
+	 */
+	public int unsupportedFeatures() {
+		return revision == 0 ? 0 : incompat & ~supportedIncompat;
+	}
+
 	/**
 	 * Returns the label of the volume
 	 * 
@@ -115,11 +298,48 @@ public class SuperBlock {
 		return label;
 	}
 
+	/**
+	 * Tests whether directories may have a hashed index
+	 * 
+	 * @return true if directories may have a hashed index
+	 */
+	public boolean hasDirectoryIndex() {
+		return (compat & compatDirIndex) != 0;
+	}
+
+	/**
+	 * Tests whether the group descriptors are checksummed, which is when the
+	 * uninitialized flags of the groups can be trusted
+	 * 
+	 * @return true if the group descriptors are checksummed
+	 */
+	public boolean hasGroupChecksums() {
+		return (roCompat & roCompatGroupChecksums) != 0;
+	}
+
+	/**
+	 * Tests whether directory hashes are computed with unsigned characters
+	 * 
+	 * @return true if directory hashes are computed with unsigned characters
+	 */
+	public boolean hasUnsignedDirectoryHash() {
+		return (sflags & flagUnsignedHash) != 0;
+	}
+
+	/**
+	 * Returns the four words of the seed of the directory hashes
+	 * 
+	 * @return the seed of the directory hashes
+	 */
+	int[] hashSeed() {
+		return seed;
+	}
+
 	/**
 	 *  * for demonstrating purposes. Gets the contents of the super Block in bytes 
 	 * @return
 	 */
 	byte[] getBytes() {
-		return vol.getBytes(offset, Volume.blockSize);
+		return vol.getBytes(offset, 1024);
 	}
 }
@@ -1,27 +1,107 @@
 package fs2;
 
+import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-public class Volume {
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
-	public static final int blockSize = 1024;
+/**
+ * A read only ext2 volume. All the reads are done at absolute positions so a
+ * single volume can be shared by several reader threads
+ */
+public class Volume implements Closeable {
+
+	/**
+	 * The super block always starts 1024 bytes into the volume
+	 */
+	private static final int superBlockOffset = 1024;
+
+	/**
+	 * Number of inodes kept in the inode cache when no capacity is given
+	 */
+	public static final int defaultInodeCacheCapacity = 4096;
+	/**
+	 * Number of directory entries kept in the dentry cache when no capacity is
+	 * given
+	 */
+	public static final int defaultDentryCacheCapacity = 16384;
+	/**
+	 * Number of directories whose name index is kept in memory
+	 */
+	private static final int directoryIndexCapacity = 64;
 
 	/**
 	 * A reference to the first super block in the file system
 	 */
 	private SuperBlock superblock;
+	/**
+	 * Size of a block in bytes
+	 */
+	private int blockSize;
+	/**
+	 * Size of an inode in bytes
+	 */
+	private int inodeSize;
+	/**
+	 * The group descriptor table, decoded when the volume is opened
+	 */
+	private GroupDescriptorTable groupDescriptors;
+	/**
+	 * Number of inodes per block group
+	 */
+	private int inodesPerGroup;
 	/**
 	 * Reference to the root directory in the file system
 	 */
 	private Ext2File root;
 	/**
-	 * Holds the whole directory
+	 * Where the bytes of the image are read from
+	 */
+	private final VolumeBackend backend;
+	/**
+	 * Holds the recently used inodes by their number
+	 */
+	private LruCache<Integer, Inode> inodes;
+	/**
+	 * Maps a name in a directory to the inode number of the file. Names which are
+	 * not in the directory are mapped to 0
+	 */
+	private LruCache<Dentry, Integer> dentries;
+	/**
+	 * Maps the names of the files of a directory without a hashed index to their
+	 * inode numbers, by the inode number of the directory
 	 */
-	private ByteBuffer buffer;
+	private LruCache<Integer, Map<String, Integer>> directoryIndexes = new LruCache<>(directoryIndexCapacity);
+	/**
+	 * Location of the image
+	 */
+	private final String path;
+	/**
+	 * The I/O counters(null while the statistics are disabled). They are enabled
+	 * from the start when the fs2.stats system property is true
+	 */
+	private volatile VolumeCounters counters = Boolean.getBoolean("fs2.stats") ? new VolumeCounters() : null;
+	/**
+	 * Name under which the statistics are registered with JMX(null if they are
+	 * not)
+	 */
+	private ObjectName mbeanName;
 
 	/**
 	 * Creates a new volume
@@ -32,18 +112,143 @@ public class Volume {
 	 *           when the file is not found
 	 */
 	public Volume(String path) throws IOException {
-		RandomAccessFile file = new RandomAccessFile(path, "r");
-		byte[] full = new byte[(int) file.length()];
-		file.readFully(full);
-		file.close();
+		this(path, defaultInodeCacheCapacity);
+	}
+
+	/**
+	 * Creates a new volume
+	 * 
+	 * @param path
+	 *          location of the file that hold the contents of the volume
+	 * @param inodeCacheCapacity
+	 *          maximum number of inodes kept in memory(0 turns the cache off)
+	 * @throws IOException
+	 *           when the file is not found
+	 */
+	public Volume(String path, int inodeCacheCapacity) throws IOException {
+		this(path, inodeCacheCapacity, defaultDentryCacheCapacity);
+	}
+
+	/**
+	 * Creates a new volume
+	 * 
+	 * @param path
+	 *          location of the file that hold the contents of the volume
+	 * @param inodeCacheCapacity
+	 *          maximum number of inodes kept in memory(0 turns the cache off)
+	 * @param dentryCacheCapacity
+	 *          maximum number of directory entries kept in memory(0 turns the
+	 *          cache off)
+	 * @throws IOException
+	 *           when the file is not found
+	 */
+	public Volume(String path, int inodeCacheCapacity, int dentryCacheCapacity) throws IOException {
+		this(path, map(open(path)), inodeCacheCapacity, dentryCacheCapacity);
+	}
 
-		buffer = ByteBuffer.wrap(full);
-		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	/**
+	 * Creates a new volume on a backend
+	 * 
+	 * @param path
+	 *          location of the file that hold the contents of the volume
+	 * @param backend
+	 *          where the contents are read from. It is closed with the volume
+	 * @param inodeCacheCapacity
+	 *          maximum number of inodes kept in memory(0 turns the cache off)
+	 * @param dentryCacheCapacity
+	 *          maximum number of directory entries kept in memory(0 turns the
+	 *          cache off)
+	 * @throws IOException
+	 *           when the file is not an ext2 volume
+	 */
+	private Volume(String path, VolumeBackend backend, int inodeCacheCapacity, int dentryCacheCapacity)
+			throws IOException {
+		this.path = path;
+		this.backend = backend;
+		inodes = new LruCache<>(inodeCacheCapacity);
+		dentries = new LruCache<>(dentryCacheCapacity);
 
-		initSuperBlock();
+		try {
+			initSuperBlock();
+		} catch (IOException e) {
+			backend.close();
+			throw e;
+		}
 		initRoot();
 	}
 
+	/**
+	 * Opens a volume which reads its image with positional reads through a cache
+	 * of {@code cacheBytes} bytes of direct memory, instead of mapping it. The
+	 * memory used by the volume stays the same however big the image is, so many
+	 * volumes can be kept open at once
+	 * 
+	 * @param path
+	 *          location of the file that hold the contents of the volume
+	 * @param cacheBytes
+	 *          size of the cache in bytes(at least 64 KB)
+	 * @return the opened volume
+	 * @throws IOException
+	 *           when the file is not found or is not an ext2 volume
+	 */
+	public static Volume openCached(String path, long cacheBytes) throws IOException {
+		return openCached(path, cacheBytes, defaultInodeCacheCapacity, defaultDentryCacheCapacity);
+	}
+
+	/**
+	 * Opens a volume which reads its image with positional reads through a cache
+	 * of {@code cacheBytes} bytes of direct memory, instead of mapping it
+	 * 
+	 * @param path
+	 *          location of the file that hold the contents of the volume
+	 * @param cacheBytes
+	 *          size of the cache in bytes(at least 64 KB)
+	 * @param inodeCacheCapacity
+	 *          maximum number of inodes kept in memory(0 turns the cache off)
+	 * @param dentryCacheCapacity
+	 *          maximum number of directory entries kept in memory(0 turns the
+	 *          cache off)
+	 * @return the opened volume
+	 * @throws IOException
+	 *           when the file is not found or is not an ext2 volume
+	 */
+	public static Volume openCached(String path, long cacheBytes, int inodeCacheCapacity, int dentryCacheCapacity)
+			throws IOException {
+		FileChannel channel = open(path);
+		VolumeBackend backend;
+
+		try {
+			backend = new CachedBackend(channel, cacheBytes);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+
+		return new Volume(path, backend, inodeCacheCapacity, dentryCacheCapacity);
+	}
+
+	/**
+	 * Releases the channel of the image. Mapped segments stay valid until they are
+	 * garbage collected
+	 * 
+	 * @throws IOException
+	 *           if the channel cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		unregisterMBean();
+		backend.close();
+	}
+
+	/**
+	 * Returns the size of the image in bytes
+	 * 
+	 * @return the size of the image in bytes
+	 */
+	public long length() {
+		return backend.length();
+	}
+
 	/**
 	 * Returns the name of the volume
 	 * 
@@ -62,6 +267,24 @@ public class Volume {
 		return this.superblock;
 	}
 
+	/**
+	 * Returns the size of a block in bytes
+	 * 
+	 * @return the size of a block in bytes
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Returns the size of an inode in bytes
+	 * 
+	 * @return the size of an inode in bytes
+	 */
+	public int getInodeSize() {
+		return inodeSize;
+	}
+
 	/**
 	 * Returns a group descriptor from this volume
 	 * 
@@ -70,7 +293,27 @@ public class Volume {
 	 * @return a group descriptor
 	 */
 	public GroupDescriptor getGroupDescriptor(int number) {
-		return new GroupDescriptor(this, 2 * blockSize + GroupDescriptor.size * number);
+		if (number < 0 || number >= groupDescriptors.groups())
+			throw new IndexOutOfBoundsException("no group " + number);
+		return new GroupDescriptor(this, groupDescriptors, number);
+	}
+
+	/**
+	 * Returns the number of block groups in the volume
+	 * 
+	 * @return the number of block groups
+	 */
+	public int getGroupCount() {
+		return groupDescriptors.groups();
+	}
+
+	/**
+	 * Returns the decoded group descriptor table
+	 * 
+	 * @return the group descriptor table
+	 */
+	GroupDescriptorTable groupDescriptors() {
+		return groupDescriptors;
 	}
 
 	/**
@@ -87,21 +330,111 @@ public class Volume {
 			return root;
 		}
 
-		// get the absolute path of the parent and just the name of the child
-		String parent = absolutePath.substring(0, absolutePath.lastIndexOf('/'));
-		String child = absolutePath.substring(absolutePath.lastIndexOf('/') + 1);
+		Object event = Ext2Events.beginGetFile();
+		Inode inode = null;
+		try {
+			inode = resolve(absolutePath);
+			return new Ext2File(this, inode, absolutePath);
+		} finally {
+			Ext2Events.endGetFile(event, absolutePath, inode == null ? 0 : inode.getNumber());
+		}
+	}
+
+	/**
+	 * Finds the inode of a file by walking its path one component at a time from
+	 * the root. Every step is looked up in the dentry cache first, so a directory
+	 * is only read when one of its names is not cached
+	 * 
+	 * @param absolutePath
+	 *          of the file
+	 * @return the inode of the file
+	 * @throws FileNotFoundException
+	 *           - when the file does not exist
+	 */
+	Inode resolve(String absolutePath) throws FileNotFoundException {
+		Inode current = root.getInode();
+		// the directory which is currently searched. It is only created when it has to
+		// be read
+		Ext2File directory = root;
+
+		int start = 0;
+		while (start < absolutePath.length()) {
+			int end = absolutePath.indexOf('/', start);
+			if (end == -1)
+				end = absolutePath.length();
+
+			// skip empty components like the ones in "//name"
+			if (end > start) {
+				if (directory == null)
+					directory = new Ext2File(this, current, absolutePath.substring(0, start - 1));
+
+				int number = lookup(directory, absolutePath.substring(start, end));
+				if (number == 0)
+					throw new FileNotFoundException(absolutePath);
+
+				current = getInode(number);
+				directory = null;
+			}
+
+			start = end + 1;
+		}
+
+		return current;
+	}
 
-		Inode newFileInode = null;
+	/**
+	 * Returns the inode number of a file in a directory
+	 * 
+	 * @param directory
+	 *          to be searched
+	 * @param name
+	 *          of the file
+	 * @return the inode number of the file </br>
+	 *         0 - if the file is not in the directory
+	 */
+	int lookup(Ext2File directory, String name) {
+		Dentry key = new Dentry(directory.getInode().getNumber(), name);
+		Integer number = dentries.get(key);
 
-		newFileInode = getFile(parent).getFileInode(child);
+		if (number == null) {
+			number = directory.findInodeNumber(name);
+			dentries.put(key, number);
+		}
 
-		if (newFileInode == null) {
-			throw new FileNotFoundException();
+		return number;
+	}
+
+	/**
+	 * Returns the name index of a directory without a hashed index. It is built
+	 * on first use by reading the directory once
+	 * 
+	 * @param directory
+	 *          to be indexed
+	 * @return a map of the names of the files in the directory to their inode
+	 *         numbers
+	 */
+	Map<String, Integer> directoryIndex(Ext2File directory) {
+		int number = directory.getInode().getNumber();
+		Map<String, Integer> index = directoryIndexes.get(number);
+
+		if (index == null) {
+			index = new HashMap<>();
+			for (DirEntry entry : new Ext2DirectoryStream(directory, null, true)) {
+				index.put(entry.getName(), entry.getInodeNumber());
+			}
+			directoryIndexes.put(number, index);
 		}
 
-		Ext2File newFile = new Ext2File(this, newFileInode, absolutePath);
+		return index;
+	}
 
-		return newFile;
+	/**
+	 * Returns the counters of the dentry cache
+	 * 
+	 * @return the counters of the dentry cache
+	 */
+	public CacheStats dentryCacheStats() {
+		return dentries.stats();
 	}
 
 	public Ext2File getRoot() {
@@ -109,28 +442,365 @@ public class Volume {
 	}
 
 	/**
-	 * Return the specified inode
+	 * Returns the counters of the inode cache
+	 * 
+	 * @return the counters of the inode cache
+	 */
+	public CacheStats inodeCacheStats() {
+		return inodes.stats();
+	}
+
+	/**
+	 * Returns the counters of the page cache of a volume opened with
+	 * {@link #openCached(String, long)}
+	 * 
+	 * @return the counters of the page cache</br>
+	 *         null if the image is mapped
+	 */
+	public CacheStats pageCacheStats() {
+		return backend.stats();
+	}
+
+	/**
+	 * Visits every allocated inode of the volume, including the ones no directory
+	 * points to. The inode bitmap of each group is read and only the allocated
+	 * inodes of its inode table are visited, one group after another in the order
+	 * of their numbers
+	 * 
+	 * @param visitor
+	 *          visits the inodes
+	 * @return the number of visited inodes
+	 */
+	public long scanInodes(InodeVisitor visitor) {
+		InodeView view = new InodeView(this);
+		long visited = 0;
+
+		for (int group = 0; group < groupDescriptors.groups(); group++) {
+			visited += scanGroup(group, view, visitor);
+		}
+
+		return visited;
+	}
+
+	/**
+	 * Visits every allocated inode of the volume like
+	 * {@link #scanInodes(InodeVisitor)}, but the groups are scanned in parallel.
+	 * The visitor is called from the worker threads, so it must be thread safe
+	 * and the inodes are not visited in order
+	 * 
+	 * @param visitor
+	 *          visits the inodes
+	 * @param parallelism
+	 *          number of worker threads
+	 * @return the number of visited inodes
+	 */
+	public long scanInodes(InodeVisitor visitor, int parallelism) {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		if (parallelism == 1)
+			return scanInodes(visitor);
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<RecursiveTask<Long>> tasks = new ArrayList<>();
+
+			for (int i = 0; i < groupDescriptors.groups(); i++) {
+				int group = i;
+				tasks.add(new RecursiveTask<Long>() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected Long compute() {
+						return scanGroup(group, new InodeView(Volume.this), visitor);
+					}
+				});
+			}
+
+			for (RecursiveTask<Long> task : tasks) {
+				pool.execute(task);
+			}
+
+			long visited = 0;
+			for (RecursiveTask<Long> task : tasks) {
+				visited += task.join();
+			}
+			return visited;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Visits the allocated inodes of a group
+	 * 
+	 * @param group
+	 *          number of the group
+	 * @param view
+	 *          moved over the visited inodes
+	 * @param visitor
+	 *          visits the inodes
+	 * @return the number of visited inodes
+	 */
+	private long scanGroup(int group, InodeView view, InodeVisitor visitor) {
+		// the bitmap of a group whose inodes were never used is not initialized. The
+		// flag means nothing unless the group descriptors are checksummed
+		if (superblock.hasGroupChecksums()
+				&& (groupDescriptors.flags(group) & GroupDescriptorTable.inodesUninitialized) != 0)
+			return 0;
+
+		long bitmap = (groupDescriptors.inodeBitmap(group) & 0xffffffffL) * blockSize;
+		long table = (groupDescriptors.inodeTable(group) & 0xffffffffL) * blockSize;
+		int first = group * inodesPerGroup + 1;
+		long visited = 0;
+
+		// the bitmap is read 32 inodes at a time, the first inode in the lowest bit
+		for (int index = 0; index < inodesPerGroup; index += 32) {
+			int bits = getIntAt(bitmap + index / 8);
+			if (inodesPerGroup - index < 32)
+				bits &= (1 << (inodesPerGroup - index)) - 1;
+
+			while (bits != 0) {
+				int i = index + Integer.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+
+				visitor.visit(view.moveTo(first + i, table + (long) i * inodeSize));
+				visited++;
+			}
+		}
+
+		return visited;
+	}
+
+	/**
+	 * Computes the disk usage of a directory tree in parallel, with a thread for
+	 * every core
+	 * 
+	 * @param directory
+	 *          where the tree starts
+	 * @param top
+	 *          number of the biggest files and directories that are reported
+	 * @return the totals of the tree and its biggest files and directories
+	 */
+	public DiskUsage du(Ext2File directory, int top) {
+		return du(directory, top, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Computes the disk usage of a directory tree in parallel. Sizes are counted
+	 * by the blocks allocated to the files, so holes of sparse files are not
+	 * counted, and files with several hard links are counted once
+	 * 
+	 * @param directory
+	 *          where the tree starts
+	 * @param top
+	 *          number of the biggest files and directories that are reported
+	 * @param parallelism
+	 *          number of worker threads
+	 * @return the totals of the tree and its biggest files and directories
+	 */
+	public DiskUsage du(Ext2File directory, int top, int parallelism) {
+		return DiskUsage.of(directory, top, parallelism);
+	}
+
+	/**
+	 * Searches the contents of every regular file of the volume for a pattern,
+	 * like grep. Files are searched in parallel and in the order of their blocks
+	 * in the volume, and matches are found across block boundaries. Files which
+	 * cannot be read are skipped and reported in {@link SearchResult#failures()}
+	 *
+	 * @param pattern
+	 *          a literal, matched against its UTF-8 bytes, or a regular expression
+	 * @param options
+	 *          how the pattern is matched
+	 * @return the matches, sorted by path and offset, and the skipped files
+	 * @throws InterruptedException
+	 *           if the search is interrupted
+	 */
+	public SearchResult search(String pattern, SearchOptions options) throws InterruptedException {
+		return search(root, pattern, options);
+	}
+
+	/**
+	 * Searches the contents of every regular file of a directory tree for a
+	 * pattern. Files which cannot be read are skipped and reported in
+	 * {@link SearchResult#failures()}
+	 *
+	 * @param directory
+	 *          where the tree starts
+	 * @param pattern
+	 *          a literal, matched against its UTF-8 bytes, or a regular expression
+	 * @param options
+	 *          how the pattern is matched
+	 * @return the matches, sorted by path and offset, and the skipped files
+	 * @throws InterruptedException
+	 *           if the search is interrupted
+	 */
+	public SearchResult search(Ext2File directory, String pattern, SearchOptions options)
+			throws InterruptedException {
+		return new ContentSearch(pattern, options).run(directory);
+	}
+
+	/**
+	 * Searches the contents of every regular file of the volume for a sequence of
+	 * bytes
+	 *
+	 * @param literal
+	 *          the bytes searched for
+	 * @param options
+	 *          how the bytes are matched
+	 * @return the matches, sorted by path and offset, and the skipped files
+	 * @throws InterruptedException
+	 *           if the search is interrupted
+	 */
+	public SearchResult search(byte[] literal, SearchOptions options) throws InterruptedException {
+		return search(root, literal, options);
+	}
+
+	/**
+	 * Searches the contents of every regular file of a directory tree for a
+	 * sequence of bytes. Files which cannot be read are skipped and reported in
+	 * {@link SearchResult#failures()}
+	 *
+	 * @param directory
+	 *          where the tree starts
+	 * @param literal
+	 *          the bytes searched for
+	 * @param options
+	 *          how the bytes are matched
+	 * @return the matches, sorted by path and offset, and the skipped files
+	 * @throws InterruptedException
+	 *           if the search is interrupted
+	 */
+	public SearchResult search(Ext2File directory, byte[] literal, SearchOptions options)
+			throws InterruptedException {
+		return new ContentSearch(literal, options).run(directory);
+	}
+
+	/**
+	 * Turns the counting of bytes read, blocks copied, inodes decoded and
+	 * directory blocks parsed on or off. Enabling the statistics starts the
+	 * counters from 0. While they are disabled the reads only check a field
+	 * 
+	 * @param enabled
+	 *          whether the I/O is counted
+	 */
+	public void setStatisticsEnabled(boolean enabled) {
+		synchronized (this) {
+			if (enabled != (counters != null))
+				counters = enabled ? new VolumeCounters() : null;
+		}
+	}
+
+	/**
+	 * Tests whether the I/O of the volume is counted
+	 * 
+	 * @return true if the I/O of the volume is counted
+	 */
+	public boolean isStatisticsEnabled() {
+		return counters != null;
+	}
+
+	/**
+	 * Returns a snapshot of the statistics of the volume
+	 * 
+	 * @return a snapshot of the statistics of the volume
+	 */
+	public VolumeStats getStats() {
+		return new VolumeStats(counters, inodes.stats(), dentries.stats());
+	}
+
+	/**
+	 * Registers the statistics of the volume with the platform MBean server, as
+	 * fs2:type=Volume,name="path of the image". They are unregistered when the
+	 * volume is closed
+	 * 
+	 * @return the name of the registered MBean
+	 * @throws JMException
+	 *           if the MBean cannot be registered
+	 */
+	public synchronized ObjectName registerMBean() throws JMException {
+		if (mbeanName == null) {
+			ObjectName name = new ObjectName("fs2:type=Volume,name=" + ObjectName.quote(path));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new VolumeStatsBean(this), name);
+			mbeanName = name;
+		}
+		return mbeanName;
+	}
+
+	/**
+	 * Unregisters the statistics of the volume from the platform MBean server, if
+	 * they are registered
+	 */
+	private synchronized void unregisterMBean() {
+		if (mbeanName == null)
+			return;
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(mbeanName);
+		} catch (JMException e) {
+			// it is gone already
+		}
+		mbeanName = null;
+	}
+
+	/**
+	 * Returns the I/O counters
+	 * 
+	 * @return the counters, or null while the statistics are disabled
+	 */
+	VolumeCounters counters() {
+		return counters;
+	}
+
+	/**
+	 * Return the specified inode. Recently used inodes are served from the inode
+	 * cache
 	 * 
 	 * @param number
 	 *          of inode
 	 * @return inode
 	 */
 	Inode getInode(int number) {
-		number--;
-		// calculate the number of the descriptor where the sought inode is located
-		int gdNum = number / superblock.inodesInGroup();
+		Inode inode = inodes.get(number);
 
-		// the offset from which the group descriptor starts
-		int gdoffset = 2 * blockSize + gdNum * GroupDescriptor.size;
+		if (inode == null) {
+			inode = readInode(number);
+			inodes.put(number, inode);
+		}
 
-		// calculate the offset from which the group descriptor's inode table start
-		int tablep = new GroupDescriptor(this, gdoffset).inodeTablePointer() * blockSize;
+		return inode;
+	}
 
-		// calculate the offset from the start of the inode table pointer to the desired
-		// inode
-		int inodepointer = tablep + (number % superblock.inodesInGroup()) * Inode.size;
+	/**
+	 * Decodes the specified inode from the inode table of its group
+	 * 
+	 * @param number
+	 *          of inode
+	 * @return inode
+	 */
+	private Inode readInode(int number) {
+		VolumeCounters c = counters;
+		if (c != null)
+			c.inodesDecoded.increment();
 
-		return new Inode(this, inodepointer);
+		return new Inode(this, number, inodeOffset(number));
+	}
+
+	/**
+	 * Calculates where an inode is written in the volume
+	 * 
+	 * @param number
+	 *          of inode
+	 * @return the offset of the inode
+	 */
+	long inodeOffset(int number) {
+		number--;
+		// the group where the sought inode is located and the offset of its inode table
+		int group = number / inodesPerGroup;
+		long table = (groupDescriptors.inodeTable(group) & 0xffffffffL) * blockSize;
+
+		return table + (number % inodesPerGroup) * (long) inodeSize;
 	}
 
 	/**
@@ -142,11 +812,10 @@ public class Volume {
 	 *          number of bytes to be read
 	 * @return Array of the read bytes
 	 */
-	byte[] getBytes(int offset, int length) {
+	byte[] getBytes(long offset, int length) {
 		byte[] temp = new byte[length];
 
-		buffer.position(offset);
-		buffer.get(temp);
+		copy(offset, temp, 0, length);
 
 		return temp;
 	}
@@ -165,10 +834,56 @@ public class Volume {
 	 * @param length
 	 *          - of read data from volume
 	 */
-	void copy(int block, int startInBlock, byte[] array, int startArray, int length) {
+	void copy(long block, int startInBlock, byte[] array, int startArray, int length) {
+		copy(block * blockSize + startInBlock, array, startArray, length);
+	}
+
+	/**
+	 * Copies data starting at {@code offset} from this volume into an array
+	 * 
+	 * @param offset
+	 *          - byte in the volume from which the copying starts
+	 * @param array
+	 *          - where the data will be copied
+	 * @param startArray
+	 *          - position in the array from where the data will start to be writen
+	 * @param length
+	 *          - of read data from volume
+	 */
+	private void copy(long offset, byte[] array, int startArray, int length) {
+		backend.copy(offset, array, startArray, length);
+	}
 
-		buffer.position(block * blockSize + startInBlock);
-		buffer.get(array, startArray, length);
+	/**
+	 * Copies {@code length} bytes starting at {@code offset} from this volume into
+	 * {@code dst}, starting at its current position
+	 * 
+	 * @param offset
+	 *          - byte in the volume from which the copying starts
+	 * @param dst
+	 *          - where the data will be copied
+	 * @param length
+	 *          - of read data from volume
+	 */
+	void copy(long offset, ByteBuffer dst, int length) {
+		backend.copy(offset, dst, length);
+	}
+
+	/**
+	 * Transfers {@code count} bytes starting at {@code offset} from this volume
+	 * straight to a channel. The bytes are not copied through the Java heap
+	 * 
+	 * @param offset
+	 *          - byte in the volume from which the transfer starts
+	 * @param count
+	 *          - number of bytes to be transferred
+	 * @param target
+	 *          - the channel where the bytes are written
+	 * @throws IOException
+	 *           if the bytes cannot be read or written
+	 */
+	void transferTo(long offset, long count, WritableByteChannel target) throws IOException {
+		backend.transferTo(offset, count, target);
 	}
 
 	/**
@@ -181,16 +896,20 @@ public class Volume {
 	 *          number of bytes to be read
 	 * @return String representation of the read bytes
 	 */
-	String getStringAt(int offset, int length) {
-
-		StringBuilder builder = new StringBuilder();
-
-		for (int i = 0; i < length; i++) {
-			char chard = (char) (buffer.getChar(offset + i) & 0xff);
-			builder.append(chard);
-		}
+	String getStringAt(long offset, int length) {
+		// every byte is one character
+		return new String(getBytes(offset, length), StandardCharsets.ISO_8859_1);
+	}
 
-		return builder.toString();
+	/**
+	 * Reads the {@code byte} at {@code offset}
+	 * 
+	 * @param offset
+	 *          byte which is read
+	 * @return the byte at that offset
+	 */
+	byte getByteAt(long offset) {
+		return backend.getByte(offset);
 	}
 
 	/**
@@ -201,8 +920,8 @@ public class Volume {
 	 *          byte from which the reading starts
 	 * @return Unsigned integer representation of the read bytes
 	 */
-	int getIntAt(int offset) {
-		return buffer.getInt(offset);
+	int getIntAt(long offset) {
+		return backend.getInt(offset);
 	}
 
 	/**
@@ -210,18 +929,84 @@ public class Volume {
 	 * unsigned {@link Integer}
 	 * 
 	 * @param offset
-	 * @return
+	 *          byte from which the reading starts
+	 * @return the read bytes as a short
 	 */
-	short getShortAt(int offset) {
-		return buffer.getShort(offset);
+	short getShortAt(long offset) {
+		return backend.getShort(offset);
 	}
 
 	/**
-	 * Initializes a copy a super block
+	 * Opens the file of an image for reading
+	 * 
+	 * @param path
+	 *          location of the file
+	 * @return the channel of the file
+	 * @throws IOException
+	 *           when the file is not found
 	 */
-	private void initSuperBlock() {
+	private static FileChannel open(String path) throws IOException {
+		return FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+	}
+
+	/**
+	 * Maps an image, closing its channel if it cannot be mapped
+	 * 
+	 * @param channel
+	 *          open on the image
+	 * @return the backend of the mapped image
+	 * @throws IOException
+	 *           when the image cannot be mapped
+	 */
+	private static VolumeBackend map(FileChannel channel) throws IOException {
+		try {
+			return new MappedBackend(channel);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Initializes a copy a super block and the sizes that depend on it
+	 * 
+	 * @throws IOException
+	 *           when the volume is not an ext2 volume or uses features that cannot
+	 *           be read
+	 */
+	private void initSuperBlock() throws IOException {
+		if (length() < superBlockOffset + 1024)
+			throw new IOException("the image is too small to be an ext2 volume");
+
 		// get the block that is just after the boot block
-		superblock = new SuperBlock(this, blockSize);
+		superblock = new SuperBlock(this, superBlockOffset);
+
+		if (!superblock.isValid())
+			throw new IOException("the image is not an ext2 volume");
+		if (superblock.unsupportedFeatures() != 0)
+			throw new IOException("unsupported features: 0x" + Integer.toHexString(superblock.unsupportedFeatures()));
+
+		// a corrupt size would give nonsense offsets everywhere
+		if (superblock.logBlockSize() < 0 || superblock.logBlockSize() > SuperBlock.maxLogBlockSize)
+			throw new IOException("invalid block size: 1024 << " + (superblock.logBlockSize() & 0xffffffffL));
+		blockSize = superblock.blockSize();
+
+		inodeSize = superblock.inodeSize();
+		if (inodeSize < Inode.size || inodeSize > blockSize || Integer.bitCount(inodeSize) != 1)
+			throw new IOException("invalid inode size: " + inodeSize);
+
+		inodesPerGroup = superblock.inodesInGroup();
+		if (superblock.blocksInGroups() <= 0 || inodesPerGroup <= 0)
+			throw new IOException("the image has no block groups");
+
+		// the group descriptor table is in the block after the super block
+		long blocks = (superblock.blocksInFileSystem() & 0xffffffffL) - superblock.firstDataBlock();
+		int groups = (int) ((blocks + superblock.blocksInGroups() - 1) / superblock.blocksInGroups());
+		long table = (superblock.firstDataBlock() + 1L) * blockSize;
+
+		if (table + (long) groups * GroupDescriptor.size > length())
+			throw new IOException("the group descriptor table is outside the image");
+		groupDescriptors = new GroupDescriptorTable(this, table, groups);
 	}
 
 	/**
@@ -234,7 +1019,10 @@ public class Volume {
 	}
 
 	/**
-	 * Traverses a directory and prints out all files
+	 * Traverses a directory and prints out all files. The tree is read one
+	 * directory block at a time while it is printed, so the output starts at once
+	 * and only the directories on the current path are held in memory. Use a
+	 * {@link VolumeWalker} to read a tree in parallel
 	 * 
 	 * @param file
 	 *          directory to be traversed
@@ -242,20 +1030,46 @@ public class Volume {
 	 *          number of indentation
 	 */
 	public static void traverse(Ext2File file, int indent) {
-		Ext2File[] subs = file.listExt2Files();
-
-		for (Ext2File sub : subs) {
+		for (DirEntry entry : file.newDirectoryStream()) {
+			StringBuilder line = new StringBuilder();
 			for (int i = 0; i < indent; i++) {
-				System.out.print(" ");
+				line.append(' ');
 			}
 
-			System.out.println(sub.getName());
-			if (sub.getName().equals("lost+found"))
+			System.out.println(line.append(entry.getName()));
+			if (entry.getName().equals("lost+found"))
 				continue;
-			if (sub.isDirectory()) {
-				Volume.traverse(sub, indent + 2);
+			if (entry.isDirectory()) {
+				Volume.traverse(entry.toExt2File(), indent + 2);
 			}
 		}
 	}
 
+	/**
+	 * Key of the dentry cache: a name inside the directory with the given inode
+	 * number
+	 */
+	private static class Dentry {
+		private final int parent;
+		private final String name;
+
+		Dentry(int parent, String name) {
+			this.parent = parent;
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Dentry))
+				return false;
+
+			Dentry other = (Dentry) obj;
+			return parent == other.parent && name.equals(other.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * parent + name.hashCode();
+		}
+	}
 }
@@ -0,0 +1,80 @@
+package fs2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Where a {@link Volume} reads the bytes of its image from. All the reads are
+ * done at absolute offsets and must be safe to call from several threads.
+ * Values are little endian.<br>
+ * The small accessors are used for the metadata of the volume(super block,
+ * group descriptors, inode tables, indirect blocks and directories) and the
+ * copies for the contents of files, so a backend may treat them differently.
+ * 
+ * @author Georgi Valchanov
+ */
+interface VolumeBackend extends Closeable {
+
+	/**
+	 * Returns the size of the image in bytes
+	 * 
+	 * @return the size of the image in bytes
+	 */
+	long length();
+
+	byte getByte(long offset);
+
+	short getShort(long offset);
+
+	int getInt(long offset);
+
+	/**
+	 * Copies bytes of the image into an array
+	 * 
+	 * @param offset
+	 *          - byte in the image from which the copying starts
+	 * @param array
+	 *          - where the data will be copied
+	 * @param start
+	 *          - position in the array from where the data is written
+	 * @param length
+	 *          - number of bytes to copy
+	 */
+	void copy(long offset, byte[] array, int start, int length);
+
+	/**
+	 * Copies bytes of the image into a buffer, starting at its position
+	 * 
+	 * @param offset
+	 *          - byte in the image from which the copying starts
+	 * @param dst
+	 *          - where the data will be copied
+	 * @param length
+	 *          - number of bytes to copy
+	 */
+	void copy(long offset, ByteBuffer dst, int length);
+
+	/**
+	 * Transfers bytes of the image straight to a channel
+	 * 
+	 * @param offset
+	 *          - byte in the image from which the transfer starts
+	 * @param count
+	 *          - number of bytes to transfer
+	 * @param target
+	 *          - the channel where the bytes are written
+	 * @throws IOException
+	 *           if the bytes cannot be read or written
+	 */
+	void transferTo(long offset, long count, WritableByteChannel target) throws IOException;
+
+	/**
+	 * Returns the counters of the cache of the backend
+	 * 
+	 * @return the counters of the cache </br>
+	 *         null - if the backend has no cache of its own
+	 */
+	CacheStats stats();
+}
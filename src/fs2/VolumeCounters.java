@@ -0,0 +1,29 @@
+package fs2;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live counters of a {@link Volume} while its statistics are enabled. The
+ * counters are {@link LongAdder}s so the reader threads do not contend on them
+ * 
+ * @author Georgi Valchanov
+ */
+class VolumeCounters {
+
+	/**
+	 * Bytes of file contents read
+	 */
+	final LongAdder bytesRead = new LongAdder();
+	/**
+	 * Data blocks copied out of the image
+	 */
+	final LongAdder blocksCopied = new LongAdder();
+	/**
+	 * Inodes decoded from the inode tables
+	 */
+	final LongAdder inodesDecoded = new LongAdder();
+	/**
+	 * Directory blocks whose entries were parsed
+	 */
+	final LongAdder directoryBlocks = new LongAdder();
+}
@@ -0,0 +1,88 @@
+package fs2;
+
+/**
+ * A snapshot of the statistics of a {@link Volume}. The I/O counters are 0
+ * while the statistics of the volume are disabled, the cache counters are
+ * always kept
+ * 
+ * @author Georgi Valchanov
+ */
+public class VolumeStats {
+
+	private final long bytesRead;
+	private final long blocksCopied;
+	private final long inodesDecoded;
+	private final long directoryBlocks;
+	private final CacheStats inodeCache;
+	private final CacheStats dentryCache;
+
+	VolumeStats(VolumeCounters counters, CacheStats inodeCache, CacheStats dentryCache) {
+		bytesRead = counters == null ? 0 : counters.bytesRead.sum();
+		blocksCopied = counters == null ? 0 : counters.blocksCopied.sum();
+		inodesDecoded = counters == null ? 0 : counters.inodesDecoded.sum();
+		directoryBlocks = counters == null ? 0 : counters.directoryBlocks.sum();
+		this.inodeCache = inodeCache;
+		this.dentryCache = dentryCache;
+	}
+
+	/**
+	 * Returns the number of bytes of file contents read
+	 * 
+	 * @return the number of bytes read
+	 */
+	public long bytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Returns the number of data blocks copied out of the image
+	 * 
+	 * @return the number of blocks copied
+	 */
+	public long blocksCopied() {
+		return blocksCopied;
+	}
+
+	/**
+	 * Returns the number of inodes decoded from the inode tables
+	 * 
+	 * @return the number of inodes decoded
+	 */
+	public long inodesDecoded() {
+		return inodesDecoded;
+	}
+
+	/**
+	 * Returns the number of directory blocks whose entries were parsed
+	 * 
+	 * @return the number of directory blocks parsed
+	 */
+	public long directoryBlocksParsed() {
+		return directoryBlocks;
+	}
+
+	/**
+	 * Returns the counters of the inode cache
+	 * 
+	 * @return the counters of the inode cache
+	 */
+	public CacheStats inodeCache() {
+		return inodeCache;
+	}
+
+	/**
+	 * Returns the counters of the dentry cache
+	 * 
+	 * @return the counters of the dentry cache
+	 */
+	public CacheStats dentryCache() {
+		return dentryCache;
+	}
+
+	@Override
+	public String toString() {
+		return "bytesRead=" + bytesRead + " blocksCopied=" + blocksCopied + " inodesDecoded=" + inodesDecoded
+				+ " directoryBlocksParsed=" + directoryBlocks + " inodeCache[" + inodeCache + "] dentryCache[" + dentryCache
+				+ "]";
+	}
+}
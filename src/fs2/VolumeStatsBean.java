@@ -0,0 +1,65 @@
+package fs2;
+
+/**
+ * Serves the statistics of a volume to JMX
+ * 
+ * @author Georgi Valchanov
+ */
+class VolumeStatsBean implements VolumeStatsMXBean {
+
+	private final Volume volume;
+
+	VolumeStatsBean(Volume volume) {
+		this.volume = volume;
+	}
+
+	@Override
+	public boolean isStatisticsEnabled() {
+		return volume.isStatisticsEnabled();
+	}
+
+	@Override
+	public void setStatisticsEnabled(boolean enabled) {
+		volume.setStatisticsEnabled(enabled);
+	}
+
+	@Override
+	public long getBytesRead() {
+		return volume.getStats().bytesRead();
+	}
+
+	@Override
+	public long getBlocksCopied() {
+		return volume.getStats().blocksCopied();
+	}
+
+	@Override
+	public long getInodesDecoded() {
+		return volume.getStats().inodesDecoded();
+	}
+
+	@Override
+	public long getDirectoryBlocksParsed() {
+		return volume.getStats().directoryBlocksParsed();
+	}
+
+	@Override
+	public long getInodeCacheHits() {
+		return volume.inodeCacheStats().hits();
+	}
+
+	@Override
+	public long getInodeCacheMisses() {
+		return volume.inodeCacheStats().misses();
+	}
+
+	@Override
+	public long getDentryCacheHits() {
+		return volume.dentryCacheStats().hits();
+	}
+
+	@Override
+	public long getDentryCacheMisses() {
+		return volume.dentryCacheStats().misses();
+	}
+}
@@ -0,0 +1,31 @@
+package fs2;
+
+/**
+ * The statistics of a {@link Volume} as seen through JMX. A volume is
+ * registered with {@link Volume#registerMBean()}
+ * 
+ * @author Georgi Valchanov
+ *
+ */
+public interface VolumeStatsMXBean {
+
+	boolean isStatisticsEnabled();
+
+	void setStatisticsEnabled(boolean enabled);
+
+	long getBytesRead();
+
+	long getBlocksCopied();
+
+	long getInodesDecoded();
+
+	long getDirectoryBlocksParsed();
+
+	long getInodeCacheHits();
+
+	long getInodeCacheMisses();
+
+	long getDentryCacheHits();
+
+	long getDentryCacheMisses();
+}
@@ -0,0 +1,321 @@
+package fs2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Walks a directory tree of a volume on a {@link ForkJoinPool}. Every
+ * subdirectory is read by its own task, so the walk is spread over several
+ * cores.<br>
+ * An unordered walk calls the visitor from the worker threads as soon as a file
+ * is found, so the visitor must be thread safe. An ordered walk calls the
+ * visitor from the calling thread in the same order as a sequential depth first
+ * walk. To do so it reads the subdirectories ahead in parallel and keeps the
+ * tree in memory until it is visited, and it also reads directories the visitor
+ * later decides not to go into.
+ * 
+ * @author Georgi Valchanov
+ */
+public class VolumeWalker {
+
+	/**
+	 * Deepest level of files that are visited
+	 */
+	private final int maxDepth;
+	/**
+	 * Filters the names of the visited files(can be null)
+	 */
+	private final Ext2FilenameFilter filter;
+	/**
+	 * Number of worker threads
+	 */
+	private final int parallelism;
+	/**
+	 * Whether the files are visited in the order of a sequential walk
+	 */
+	private final boolean ordered;
+
+	/**
+	 * Creates an unordered walker with no depth limit and no filter, which uses a
+	 * thread for every core
+	 */
+	public VolumeWalker() {
+		this(Integer.MAX_VALUE, null, Runtime.getRuntime().availableProcessors(), false);
+	}
+
+	/**
+	 * Creates a new walker
+	 * 
+	 * @param maxDepth
+	 *          - deepest level of files that are visited(the entries of the start
+	 *          directory are at depth 1)
+	 * @param filter
+	 *          - files whose names are not accepted are neither visited nor walked
+	 *          into(can be null)
+	 * @param parallelism
+	 *          - number of worker threads
+	 * @param ordered
+	 *          - whether the files are visited in the order of a sequential walk
+	 */
+	public VolumeWalker(int maxDepth, Ext2FilenameFilter filter, int parallelism, boolean ordered) {
+		if (maxDepth < 0)
+			throw new IllegalArgumentException("negative depth: " + maxDepth);
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+
+		this.maxDepth = maxDepth;
+		this.filter = filter;
+		this.parallelism = parallelism;
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Walks the tree under a directory. The directory itself is not visited
+	 * 
+	 * @param start
+	 *          - the directory where the walk starts
+	 * @param visitor
+	 *          - visits the files
+	 */
+	public void walk(Ext2File start, Ext2FileVisitor visitor) {
+		if (!start.isDirectory() || maxDepth == 0)
+			return;
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			if (ordered) {
+				List<Node> tree = pool.invoke(new ReadTask(start, 1));
+				replay(tree, visitor);
+			}
+			else {
+				pool.invoke(new VisitTask(start, 1, visitor));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Finds the regular files of a tree and sorts them by their first block in the
+	 * volume, so reading them one after another moves forward through the image
+	 * 
+	 * @param start
+	 *          - the directory where the search starts
+	 * @param parallelism
+	 *          - number of threads reading the directories
+	 * @return the regular files, in the order of their first block
+	 */
+	static List<Ext2File> filesByFirstBlock(Ext2File start, int parallelism) {
+		ConcurrentLinkedQueue<Ext2File> found = new ConcurrentLinkedQueue<>();
+
+		new VolumeWalker(Integer.MAX_VALUE, null, parallelism, false).walk(start, (file, depth) -> {
+			if (file.isFile())
+				found.add(file);
+			return true;
+		});
+
+		Ext2File[] files = found.toArray(new Ext2File[0]);
+		long[] firstBlocks = new long[files.length];
+		Integer[] order = new Integer[files.length];
+
+		// the block of each file is found once rather than on every comparison
+		for (int i = 0; i < files.length; i++) {
+			firstBlocks[i] = files[i].size() > 0 ? files[i].physicalBlock(0) : 0;
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingLong(i -> firstBlocks[i]));
+
+		List<Ext2File> sorted = new ArrayList<>(files.length);
+		for (int i : order) {
+			sorted.add(files[i]);
+		}
+		return sorted;
+	}
+
+	/**
+	 * Processes files on a pool of threads. Every thread takes the next file of
+	 * the list until none are left, so the files are started in the order of the
+	 * list. When the calling thread is interrupted the threads stop before their
+	 * next file. They are not interrupted themselves, because an interrupted read
+	 * of a {@link java.nio.channels.FileChannel} closes the channel of the whole
+	 * volume
+	 * 
+	 * @param files
+	 *          - to be processed
+	 * @param parallelism
+	 *          - number of threads
+	 * @param workers
+	 *          - creates the worker of each thread, which can keep buffers of its
+	 *          own. A worker must catch the errors of a single file itself
+	 * @throws InterruptedException
+	 *           if the calling thread is interrupted
+	 */
+	static void forEachFile(List<Ext2File> files, int parallelism, Supplier<FileWorker> workers)
+			throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		AtomicBoolean stopped = new AtomicBoolean();
+
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < parallelism; i++) {
+				futures.add(executor.submit(() -> {
+					FileWorker worker = workers.get();
+					int index;
+
+					while (!stopped.get() && !Thread.currentThread().isInterrupted()
+							&& (index = next.getAndIncrement()) < files.size()) {
+						worker.process(index, files.get(index));
+					}
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			stopped.set(true);
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Processes the files taken by one thread of
+	 * {@link VolumeWalker#forEachFile(List, int, Supplier)}
+	 */
+	interface FileWorker {
+
+		/**
+		 * Processes a single file
+		 * 
+		 * @param index
+		 *          - of the file in the list
+		 * @param file
+		 *          - to be processed
+		 */
+		void process(int index, Ext2File file);
+	}
+
+	/**
+	 * Visits a tree which was read ahead, in depth first order
+	 * 
+	 * @param nodes
+	 *          the entries of a directory
+	 * @param visitor
+	 *          visits the files
+	 */
+	private static void replay(List<Node> nodes, Ext2FileVisitor visitor) {
+		for (Node node : nodes) {
+			if (visitor.visit(node.file, node.depth) && node.children != null)
+				replay(node.children, visitor);
+		}
+	}
+
+	/**
+	 * A file which was read ahead and the entries below it(null if it is not
+	 * walked into)
+	 */
+	private static class Node {
+		final Ext2File file;
+		final int depth;
+		List<Node> children;
+
+		Node(Ext2File file, int depth) {
+			this.file = file;
+			this.depth = depth;
+		}
+	}
+
+	/**
+	 * Reads a directory and forks a task for every subdirectory, without visiting
+	 * anything
+	 */
+	private class ReadTask extends RecursiveTask<List<Node>> {
+		private static final long serialVersionUID = 1L;
+
+		private final Ext2File directory;
+		private final int depth;
+
+		ReadTask(Ext2File directory, int depth) {
+			this.directory = directory;
+			this.depth = depth;
+		}
+
+		@Override
+		protected List<Node> compute() {
+			List<Node> nodes = new ArrayList<>();
+			List<Node> subdirectories = new ArrayList<>();
+			List<ReadTask> tasks = new ArrayList<>();
+
+			for (DirEntry entry : directory.newDirectoryStream(filter)) {
+				Node node = new Node(entry.toExt2File(), depth);
+				nodes.add(node);
+
+				if (depth < maxDepth && entry.isDirectory()) {
+					ReadTask task = new ReadTask(node.file, depth + 1);
+					task.fork();
+					subdirectories.add(node);
+					tasks.add(task);
+				}
+			}
+
+			for (int i = 0; i < tasks.size(); i++) {
+				subdirectories.get(i).children = tasks.get(i).join();
+			}
+
+			return nodes;
+		}
+	}
+
+	/**
+	 * Visits the entries of a directory and forks a task for every subdirectory
+	 * the visitor goes into
+	 */
+	private class VisitTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Ext2File directory;
+		private final int depth;
+		private final Ext2FileVisitor visitor;
+
+		VisitTask(Ext2File directory, int depth, Ext2FileVisitor visitor) {
+			this.directory = directory;
+			this.depth = depth;
+			this.visitor = visitor;
+		}
+
+		@Override
+		protected void compute() {
+			List<VisitTask> tasks = new ArrayList<>();
+
+			for (DirEntry entry : directory.newDirectoryStream(filter)) {
+				Ext2File file = entry.toExt2File();
+
+				if (visitor.visit(file, depth) && depth < maxDepth && entry.isDirectory()) {
+					VisitTask task = new VisitTask(file, depth + 1, visitor);
+					task.fork();
+					tasks.add(task);
+				}
+			}
+
+			for (VisitTask task : tasks) {
+				task.join();
+			}
+		}
+	}
+}